@@ -0,0 +1,258 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The BellmanFord class computes single-source shortest paths over a
+ * CsrGraph with integral weights of any sign (weight column 0):
+ *  - int_passes(s): Bellman-Ford passes over every edge, stopping at the
+ *    first pass that changes nothing;
+ *  - int_spfa(s): queue-driven Bellman-Ford (SPFA), only relaxing the edges
+ *    of nodes whose distance changed, a cycle being looked for whenever a
+ *    node has been lowered N more times;
+ *  - int_parallel(s, pool): Jacobi-style passes in which every node pulls
+ *    its new distance from its in-edges, in parallel on a ForkJoinPool, so
+ *    no two threads ever write the same node.
+ * Only nodes reachable from s are relaxed: the rest keep a distance of 1e9
+ * and negative cycles they alone reach are not reported.
+ * A negative cycle reachable from s raises a NegativeCycleException that
+ * carries the cycle, found in the predecessor graph (every cycle in it has
+ * a negative weight). come_from() holds the predecessors of the last run.
+ * @author Diogo Peralta Cordeiro <diogo@fc.up.pt>
+ */
+public final class
+BellmanFord
+{
+    private static final int INF = 1000000000; // 1e9 to avoid overflow
+    private static final int SEQUENTIAL_THRESHOLD = 512; // nodes per task
+
+    private final CsrGraph g;
+    private final int[] weight;
+    private CsrGraph g_transpose; // built on the first parallel run
+    private int[] come_from;
+
+    // O(1) to construct the structure
+    public
+    BellmanFord (CsrGraph g)
+    {
+        this.g = g;
+        this.weight = g.int_weights(0);
+    }
+
+    // O(1) to get the predecessor of every node in the last run, -1 if none
+    public int[]
+    come_from ()
+    {
+        return this.come_from;
+    }
+
+    private int[]
+    start (int s)
+    {
+        int[] dist = new int[this.g.n_nodes];
+        Arrays.fill(dist, INF);
+        dist[s] = 0;
+        this.come_from = new int[this.g.n_nodes];
+        Arrays.fill(this.come_from, -1);
+        return dist;
+    }
+
+    // O(k*#Edges), k <= N being the #edges of the longest shortest path
+    public int[]
+    int_passes(int s) throws NegativeCycleException {
+        int[] dist = this.start(s);
+        int[] offsets = this.g.offsets, targets = this.g.targets;
+
+        for (int pass = 0; pass < this.g.n_nodes; ++pass) {
+            int last_lowered = -1;
+            for (int u = 0; u < this.g.n_nodes; ++u) {
+                if (dist[u] == INF) continue;
+                for (int e = offsets[u]; e < offsets[u + 1]; ++e) {
+                    int w = targets[e];
+                    int dist_w = dist[u] + this.weight[e];
+                    if (dist_w < dist[w]) {
+                        dist[w] = dist_w;
+                        this.come_from[w] = u;
+                        last_lowered = w;
+                    }
+                }
+            }
+            // Nothing changed: every distance is final
+            if (last_lowered < 0) return dist;
+            // Still changing after N-1 passes: there's a negative cycle
+            if (pass == this.g.n_nodes - 1) {
+                throw new NegativeCycleException(find_cycle(this.come_from, last_lowered));
+            }
+        }
+
+        // That's all folks.
+        return dist;
+    }
+
+    // O(N*#Edges) worst case, usually close to O(#Edges)
+    public int[]
+    int_spfa(int s) throws NegativeCycleException {
+        int[] dist = this.start(s);
+        int[] offsets = this.g.offsets, targets = this.g.targets;
+        int[] lowered = new int[this.g.n_nodes]; // #times each distance went down
+        boolean[] queued = new boolean[this.g.n_nodes];
+        // Circular FIFO, a node is queued at most once at a time
+        int[] queue = new int[this.g.n_nodes];
+        int head = 0, size = 0;
+
+        queue[0] = s;
+        queued[s] = true;
+        size = 1;
+        while (size > 0) {
+            int u = queue[head];
+            head = (head + 1) % queue.length;
+            --size;
+            queued[u] = false;
+            for (int e = offsets[u]; e < offsets[u + 1]; ++e) {
+                int w = targets[e];
+                int dist_w = dist[u] + this.weight[e];
+                if (dist_w < dist[w]) {
+                    dist[w] = dist_w;
+                    this.come_from[w] = u;
+                    // Lowered N times: a cycle may be in the predecessor
+                    // graph by now (checked every N lowerings, O(1) amortised)
+                    if (++lowered[w] % this.g.n_nodes == 0) {
+                        int[] cycle = find_cycle(this.come_from, w);
+                        if (cycle != null) throw new NegativeCycleException(cycle);
+                    }
+                    if (!queued[w]) {
+                        queued[w] = true;
+                        queue[(head + size) % queue.length] = w;
+                        ++size;
+                    }
+                }
+            }
+        }
+
+        // That's all folks.
+        return dist;
+    }
+
+    // O(k*#Edges/P), k <= N being the #edges of the longest shortest path
+    // and P the pool's parallelism
+    public int[]
+    int_parallel(int s, ForkJoinPool pool) throws NegativeCycleException {
+        if (this.g_transpose == null) {
+            this.g_transpose = this.g.transpose();
+        }
+        int[] in_offsets = this.g_transpose.offsets, sources = this.g_transpose.targets;
+        int[] in_weight = this.g_transpose.int_weights(0);
+        int[] dist = this.start(s), next = dist.clone();
+        int[] come_from = this.come_from;
+
+        for (int pass = 0; pass < this.g.n_nodes; ++pass) {
+            int[] current = dist, lowered = next;
+            // Every node pulls from its in-edges, reading only current
+            boolean changed = pool.invoke(new Pull(in_offsets, sources, in_weight, current, lowered, come_from,
+                    0, this.g.n_nodes));
+
+            dist = lowered;
+            next = current;
+            if (!changed) return dist;
+        }
+
+        // Still changing after N passes: there's a negative cycle
+        for (int w = 0; w < this.g.n_nodes; ++w) {
+            if (dist[w] != next[w]) {
+                int[] cycle = find_cycle(come_from, w);
+                if (cycle != null) throw new NegativeCycleException(cycle);
+            }
+        }
+        throw new IllegalStateException("Distances kept changing without a cycle.");
+    }
+
+    // Pulls the distances of nodes [lo, hi) from current into lowered,
+    // splitting the range in halves down to SEQUENTIAL_THRESHOLD nodes;
+    // returns whether any of them got lower
+    private static final class
+    Pull
+            extends RecursiveTask<Boolean>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] in_offsets, sources, in_weight;
+        private final int[] current, lowered, come_from;
+        private final int lo, hi;
+
+        Pull (int[] in_offsets, int[] sources, int[] in_weight, int[] current, int[] lowered, int[] come_from,
+              int lo, int hi)
+        {
+            this.in_offsets = in_offsets;
+            this.sources = sources;
+            this.in_weight = in_weight;
+            this.current = current;
+            this.lowered = lowered;
+            this.come_from = come_from;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected Boolean
+        compute ()
+        {
+            if (this.hi - this.lo > SEQUENTIAL_THRESHOLD) {
+                int mid = (this.lo + this.hi) >>> 1;
+                Pull left = new Pull(this.in_offsets, this.sources, this.in_weight, this.current, this.lowered,
+                        this.come_from, this.lo, mid);
+                Pull right = new Pull(this.in_offsets, this.sources, this.in_weight, this.current, this.lowered,
+                        this.come_from, mid, this.hi);
+                invokeAll(left, right);
+                return left.join() | right.join();
+            }
+
+            boolean changed = false;
+            int[] current = this.current;
+            for (int w = this.lo; w < this.hi; ++w) {
+                int best = current[w], from = -1;
+                for (int e = this.in_offsets[w]; e < this.in_offsets[w + 1]; ++e) {
+                    int u = this.sources[e];
+                    if (current[u] == INF) continue;
+                    int dist_w = current[u] + this.in_weight[e];
+                    if (dist_w < best) {
+                        best = dist_w;
+                        from = u;
+                    }
+                }
+                this.lowered[w] = best;
+                if (from >= 0) {
+                    this.come_from[w] = from;
+                    changed = true;
+                }
+            }
+            return changed;
+        }
+    }
+
+    // O(N) to find a cycle in the predecessor graph going back from x,
+    // returned in edge order; null if there's none
+    static int[]
+    find_cycle (int[] come_from, int x)
+    {
+        // Walk back until a node repeats or the chain ends
+        int n_nodes = come_from.length;
+        boolean[] seen = new boolean[n_nodes];
+        int u = x;
+        while (u >= 0 && !seen[u]) {
+            seen[u] = true;
+            u = come_from[u];
+        }
+        if (u < 0) return null;
+
+        // u is on the cycle: collect it backwards, then reverse
+        int length = 1;
+        for (int v = come_from[u]; v != u; v = come_from[v]) ++length;
+        int[] cycle = new int[length];
+        int v = u;
+        for (int i = length - 1; i >= 0; --i) {
+            cycle[i] = v;
+            v = come_from[v];
+        }
+        return cycle;
+    }
+}
@@ -0,0 +1,93 @@
+import java.util.*;
+
+/**
+ * The BucketQueue class is the monotone priority queue of Dial's algorithm:
+ * while every queued priority lies within [last polled, last polled + C],
+ * C being the largest edge weight, a circular array of C+1 buckets indexed
+ * by priority mod (C+1) keeps them sorted.
+ * Buckets are intrusive doubly-linked lists over primitive arrays, so
+ * pushing and decreasing a priority are O(1) and polling is O(1) amortised
+ * plus the empty buckets skipped, O(#Edges + N + max distance) overall.
+ * @author Diogo Peralta Cordeiro <diogo@fc.up.pt>
+ */
+public final class
+BucketQueue
+        implements MonotoneQueue
+{
+    private final int[] head;          // bucket -> first node, -1 if empty
+    private final int[] next, prev;    // node -> neighbours in its bucket
+    private final int[] key;           // node -> priority, -1 if not queued
+    private final int n_buckets;
+    private int cursor, size;          // bucket of the last polled priority
+
+    // O(n + C) to construct the structure
+    public
+    BucketQueue (int n_nodes, int max_weight)
+    {
+        if (max_weight < 0) {
+            throw new IllegalArgumentException("Bucket queues need non-negative weights.");
+        }
+        this.n_buckets = max_weight + 1;
+        this.head = new int[this.n_buckets];
+        this.next = new int[n_nodes];
+        this.prev = new int[n_nodes];
+        this.key = new int[n_nodes];
+        Arrays.fill(this.head, -1);
+        Arrays.fill(this.key, -1);
+        this.cursor = 0;
+        this.size = 0;
+    }
+
+    // O(1) to queue a node, or to decrease its priority
+    public void
+    push (int u, int key)
+    {
+        if (this.key[u] >= 0) {
+            this.unlink(u);
+        } else {
+            ++this.size;
+        }
+        this.key[u] = key;
+        int b = key % this.n_buckets;
+        this.prev[u] = -1;
+        this.next[u] = this.head[b];
+        if (this.head[b] >= 0) {
+            this.prev[this.head[b]] = u;
+        }
+        this.head[b] = u;
+    }
+
+    // O(C) worst case to remove and return the node with the least priority
+    public int
+    poll ()
+    {
+        if (this.size == 0) throw new NoSuchElementException();
+        while (this.head[this.cursor] < 0) {
+            this.cursor = (this.cursor + 1) % this.n_buckets;
+        }
+        int u = this.head[this.cursor];
+        this.unlink(u);
+        this.key[u] = -1;
+        --this.size;
+        return u;
+    }
+
+    public boolean
+    is_empty ()
+    {
+        return this.size == 0;
+    }
+
+    private void
+    unlink (int u)
+    {
+        if (this.prev[u] >= 0) {
+            this.next[this.prev[u]] = this.next[u];
+        } else {
+            this.head[this.key[u] % this.n_buckets] = this.next[u];
+        }
+        if (this.next[u] >= 0) {
+            this.prev[this.next[u]] = this.prev[u];
+        }
+    }
+}
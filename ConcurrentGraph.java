@@ -0,0 +1,344 @@
+import java.util.*;
+
+/**
+ * The ConcurrentGraph class is a directed graph of nodes named 0 through
+ * N-1, with integral weights, that one or more writer threads change while
+ * any number of reader threads search it, none of them ever blocking a
+ * reader.
+ * Readers work on a Snapshot: an immutable version of the graph, taken in
+ * O(1) by snapshot() and consistent for as long as it is held, whatever
+ * gets published meanwhile. Writers fill a Batch of link/unlink changes
+ * and publish() it, which makes all of them visible at once, as the next
+ * version, to every snapshot taken afterwards.
+ * Snapshots share their storage copy-on-write: adjacency-lists are arrays
+ * grouped into blocks of BLOCK nodes, and publishing a batch only copies
+ * the lists and blocks it touches (plus the array of N/BLOCK block
+ * references). Versions nobody holds anymore are left to the garbage
+ * collector.
+ * Writers are serialised among themselves, readers never wait.
+ * @author Diogo Peralta Cordeiro <diogo@fc.up.pt>
+ */
+public final class
+ConcurrentGraph
+{
+    private static final int INF = 1000000000; // 1e9 to avoid overflow
+    private static final int BLOCK_BITS = 6;
+    public static final int BLOCK = 1 << BLOCK_BITS; // nodes per block
+
+    private volatile Snapshot current; // the last published version
+
+    // O(N) to construct the structure, with no edges
+    public
+    ConcurrentGraph (int n_nodes)
+    {
+        Block[] blocks = new Block[(n_nodes + BLOCK - 1) >>> BLOCK_BITS];
+        for (int b = 0; b < blocks.length; ++b) {
+            int size = Math.min(BLOCK, n_nodes - (b << BLOCK_BITS));
+            blocks[b] = new Block(new int[size][], new int[size][]);
+            Arrays.fill(blocks[b].targets, new int[0]);
+            Arrays.fill(blocks[b].weights, new int[0]);
+        }
+        this.current = new Snapshot(0, n_nodes, 0, blocks);
+    }
+
+    // O(N + #Edges) to start from a graph, first weights only (0 if none)
+    public static ConcurrentGraph
+    of (DirectedWeightedGraph<?> g)
+    {
+        ConcurrentGraph graph = new ConcurrentGraph(g.n_nodes);
+        Block[] blocks = graph.current.blocks;
+        for (int u = 0; u < g.n_nodes; ++u) {
+            int[] targets = new int[g.edges(u).size()], weights = new int[targets.length];
+            int i = 0;
+            for (int w : g.edges(u)) {
+                targets[i] = w;
+                weights[i++] = g.weight(u, w).isEmpty() ? 0 : g.int_weight(u, w);
+            }
+            blocks[u >>> BLOCK_BITS].targets[u & (BLOCK - 1)] = targets;
+            blocks[u >>> BLOCK_BITS].weights[u & (BLOCK - 1)] = weights;
+        }
+        graph.current = new Snapshot(0, g.n_nodes, g.n_edges, blocks);
+        return graph;
+    }
+
+    // The adjacency-lists of BLOCK consecutive nodes, never changed once
+    // part of a published Snapshot
+    private static final class
+    Block
+    {
+        final int[][] targets, weights; // [node in block][i]
+
+        Block (int[][] targets, int[][] weights)
+        {
+            this.targets = targets;
+            this.weights = weights;
+        }
+    }
+
+    /**
+     * An immutable version of the graph, safe to share between threads.
+     */
+    public static final class
+    Snapshot
+    {
+        public final long version; // number of batches published before it
+        public final int n_nodes, n_edges; // N, #Edges, respectively
+        private final Block[] blocks;
+        private volatile CsrGraph frozen; // searched by int_dijkstra, built once
+
+        private
+        Snapshot (long version, int n_nodes, int n_edges, Block[] blocks)
+        {
+            this.version = version;
+            this.n_nodes = n_nodes;
+            this.n_edges = n_edges;
+            this.blocks = blocks;
+        }
+
+        // O(1) to get the out-degree of a node
+        public int
+        degree (int u)
+        {
+            return this.blocks[u >>> BLOCK_BITS].targets[u & (BLOCK - 1)].length;
+        }
+
+        // O(1) to get the node u's i-th edge points to, 0 <= i < degree(u)
+        public int
+        target (int u, int i)
+        {
+            return this.blocks[u >>> BLOCK_BITS].targets[u & (BLOCK - 1)][i];
+        }
+
+        // O(1) to get the weight of u's i-th edge
+        public int
+        int_weight (int u, int i)
+        {
+            return this.blocks[u >>> BLOCK_BITS].weights[u & (BLOCK - 1)][i];
+        }
+
+        // O(out degree of u) to know if there's an edge u->w
+        public boolean
+        contains (int u, int w)
+        {
+            return this.find(u, w) >= 0;
+        }
+
+        // O(out degree of u) to get the weight of u->w, 1e9 if there's none
+        public int
+        weight (int u, int w)
+        {
+            int i = this.find(u, w);
+            return i < 0 ? INF : this.int_weight(u, i);
+        }
+
+        // O(out degree of u) to get the index of u->w among u's edges, -1 if none
+        private int
+        find (int u, int w)
+        {
+            int[] targets = this.blocks[u >>> BLOCK_BITS].targets[u & (BLOCK - 1)];
+            for (int i = 0; i < targets.length; ++i) {
+                if (targets[i] == w) return i;
+            }
+            return -1;
+        }
+
+        // O(N + #Edges) to copy the snapshot into a CsrGraph
+        public CsrGraph
+        freeze ()
+        {
+            int[] offsets = new int[this.n_nodes + 1];
+            int[] targets = new int[this.n_edges], weights = new int[this.n_edges];
+            for (int u = 0; u < this.n_nodes; ++u) {
+                Block block = this.blocks[u >>> BLOCK_BITS];
+                int[] row = block.targets[u & (BLOCK - 1)];
+                System.arraycopy(row, 0, targets, offsets[u], row.length);
+                System.arraycopy(block.weights[u & (BLOCK - 1)], 0, weights, offsets[u], row.length);
+                offsets[u + 1] = offsets[u] + row.length;
+            }
+            return new CsrGraph(this.n_nodes, offsets, targets, new int[][] {weights}, new double[1][]);
+        }
+
+        /* UTILS */
+
+        // O(#Edges + N*lg(N)), over a frozen copy made by the first query
+        // and shared by the later ones (threads racing on the first one may
+        // each make one, the last one stays)
+        public List<Object>
+        int_dijkstra(int s) {
+            CsrGraph frozen = this.frozen;
+            if (frozen == null) {
+                this.frozen = frozen = this.freeze();
+            }
+            return GraphSearch.int_dijkstra(frozen, s);
+        }
+    }
+
+    /**
+     * Changes recorded by a writer, none of them visible to readers until
+     * publish(). A Batch belongs to one writer thread; publishing empties
+     * it, so it can be filled again.
+     */
+    public final class
+    Batch
+    {
+        private int[] us = new int[16], ws = new int[16], weights = new int[16];
+        private boolean[] unlinks = new boolean[16];
+        private int size = 0;
+
+        private void
+        add (int u, int w, int weight, boolean unlink)
+        {
+            int n_nodes = ConcurrentGraph.this.current.n_nodes;
+            if (u < 0 || u >= n_nodes || w < 0 || w >= n_nodes) {
+                throw new IllegalArgumentException("Edge " + u + "-" + w + " is not between nodes 0 through " + (n_nodes - 1) + ".");
+            }
+            if (this.size == this.us.length) {
+                this.us = Arrays.copyOf(this.us, 2 * this.size);
+                this.ws = Arrays.copyOf(this.ws, 2 * this.size);
+                this.weights = Arrays.copyOf(this.weights, 2 * this.size);
+                this.unlinks = Arrays.copyOf(this.unlinks, 2 * this.size);
+            }
+            this.us[this.size] = u;
+            this.ws[this.size] = w;
+            this.weights[this.size] = weight;
+            this.unlinks[this.size++] = unlink;
+        }
+
+        // O(1) to record the edge u->w, or a new weight for it
+        public Batch
+        link (int u, int w, int weight)
+        {
+            this.add(u, w, weight, false);
+            return this;
+        }
+
+        // O(1) to record the removal of u->w (ignored if there's none)
+        public Batch
+        unlink (int u, int w)
+        {
+            this.add(u, w, 0, true);
+            return this;
+        }
+
+        // O(1) to get the number of changes recorded
+        public int
+        size ()
+        {
+            return this.size;
+        }
+
+        // O(N/BLOCK + #changes + degrees of the nodes changed) to make every
+        // change visible at once, as a new version
+        public Snapshot
+        publish ()
+        {
+            Snapshot snapshot = ConcurrentGraph.this.apply(this.us, this.ws, this.weights, this.unlinks, this.size);
+            this.size = 0;
+            return snapshot;
+        }
+    }
+
+    // An adjacency-list being changed by a batch, with room to grow
+    private static final class
+    Edits
+    {
+        int[] targets, weights;
+        int degree;
+
+        Edits (int[] targets, int[] weights)
+        {
+            this.degree = targets.length;
+            this.targets = Arrays.copyOf(targets, this.degree + 4);
+            this.weights = Arrays.copyOf(weights, this.degree + 4);
+        }
+    }
+
+    // Copies what the changes touch from the current version, applies them
+    // in order, and publishes the result
+    private synchronized Snapshot
+    apply (int[] us, int[] ws, int[] weights, boolean[] unlinks, int size)
+    {
+        Snapshot old = this.current;
+        if (size == 0) return old;
+
+        int n_edges = old.n_edges;
+        Map<Integer, Edits> edited = new HashMap<>();
+        for (int k = 0; k < size; ++k) {
+            int u = us[k], w = ws[k];
+            Edits edits = edited.get(u);
+            if (edits == null) {
+                Block block = old.blocks[u >>> BLOCK_BITS];
+                edits = new Edits(block.targets[u & (BLOCK - 1)], block.weights[u & (BLOCK - 1)]);
+                edited.put(u, edits);
+            }
+            int i = 0;
+            while (i < edits.degree && edits.targets[i] != w) ++i;
+            if (unlinks[k]) {
+                if (i == edits.degree) continue;
+                // Keep the remaining edges in order
+                System.arraycopy(edits.targets, i + 1, edits.targets, i, edits.degree - i - 1);
+                System.arraycopy(edits.weights, i + 1, edits.weights, i, edits.degree - i - 1);
+                --edits.degree;
+                --n_edges;
+            } else {
+                if (i == edits.degree) {
+                    if (i == edits.targets.length) {
+                        edits.targets = Arrays.copyOf(edits.targets, 2 * i);
+                        edits.weights = Arrays.copyOf(edits.weights, 2 * i);
+                    }
+                    edits.targets[i] = w;
+                    ++edits.degree;
+                    ++n_edges;
+                }
+                edits.weights[i] = weights[k];
+            }
+        }
+
+        // Copy-on-write of the blocks holding a changed list
+        Block[] blocks = old.blocks.clone();
+        for (Map.Entry<Integer, Edits> entry : edited.entrySet()) {
+            int u = entry.getKey(), b = u >>> BLOCK_BITS;
+            if (blocks[b] == old.blocks[b]) {
+                blocks[b] = new Block(old.blocks[b].targets.clone(), old.blocks[b].weights.clone());
+            }
+            Edits edits = entry.getValue();
+            blocks[b].targets[u & (BLOCK - 1)] = Arrays.copyOf(edits.targets, edits.degree);
+            blocks[b].weights[u & (BLOCK - 1)] = Arrays.copyOf(edits.weights, edits.degree);
+        }
+
+        // The volatile write publishes the new version, and everything it
+        // points to, to every thread that reads it afterwards
+        Snapshot snapshot = new Snapshot(old.version + 1, old.n_nodes, n_edges, blocks);
+        this.current = snapshot;
+        return snapshot;
+    }
+
+    // O(1) to get the last published version, without ever blocking
+    public Snapshot
+    snapshot ()
+    {
+        return this.current;
+    }
+
+    // O(1) to start recording a batch of changes
+    public Batch
+    batch ()
+    {
+        return new Batch();
+    }
+
+    // O(N/BLOCK + degree of u) to add the edge u->w, or update its weight,
+    // as a batch of its own
+    public Snapshot
+    link (int u, int w, int weight)
+    {
+        return this.batch().link(u, w, weight).publish();
+    }
+
+    // O(N/BLOCK + degree of u) to remove the edge u->w, as a batch of its own
+    public Snapshot
+    unlink (int u, int w)
+    {
+        return this.batch().unlink(u, w).publish();
+    }
+}
@@ -0,0 +1,419 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * The ContractionHierarchy class preprocesses a DirectedWeightedGraph with
+ * non-negative integral weights (first weight of each edge) to answer
+ * point-to-point shortest path queries by only searching "upwards".
+ * Nodes are contracted one by one, least important first (edge difference
+ * plus #contracted neighbours, lazily updated). Contracting v adds a
+ * shortcut u->w, weighing c(u->v) + c(v->w), wherever u->v->w is the only
+ * shortest u-w path around; the shortcuts live in a working copy of the
+ * graph using its multi-weight edges: (cost, middle node), -1 as the
+ * middle node of an original edge.
+ * The result is a pair of CSR graphs: the upward edges u->w (w contracted
+ * after u) and the downward edges u->w (u contracted after w), stored at w.
+ * A query runs Dijkstra from s over the former and from t over the latter,
+ * and unpacks the shortcuts of the best meeting point to rebuild the path.
+ * The hierarchy is Serializable, so the preprocessing can be paid once.
+ * Queries are not thread-safe: deserialize or copy one per thread.
+ * @author Diogo Peralta Cordeiro <diogo@fc.up.pt>
+ */
+public final class
+ContractionHierarchy
+        implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+    private static final int INF = 1000000000; // 1e9 to avoid overflow
+    // Nodes settled per witness search, when estimating priorities and when contracting
+    private static final int ESTIMATE_SETTLE_LIMIT = 50, WITNESS_SETTLE_LIMIT = 500;
+
+    public final int n_nodes;
+    public final int[] rank; // node -> contraction order
+    // Upward edges of u: u->up_targets[e], for e in up_offsets[u] .. up_offsets[u+1]-1
+    private final int[] up_offsets, up_targets, up_weights, up_via;
+    // Downward edges into w: down_targets[e]->w, for e in down_offsets[w] .. down_offsets[w+1]-1
+    private final int[] down_offsets, down_targets, down_weights, down_via;
+
+    /* Query state, rebuilt on demand after deserialization */
+    private transient int[][] dist, come_from, stamp;
+    private transient IndexedDaryHeap[] to_explore;
+    private transient int query, meeting;
+
+    private
+    ContractionHierarchy (int n_nodes, int[] rank, int[][] up, int[][] down)
+    {
+        this.n_nodes = n_nodes;
+        this.rank = rank;
+        this.up_offsets = up[0];
+        this.up_targets = up[1];
+        this.up_weights = up[2];
+        this.up_via = up[3];
+        this.down_offsets = down[0];
+        this.down_targets = down[1];
+        this.down_weights = down[2];
+        this.down_via = down[3];
+    }
+
+    /* Preprocessing */
+
+    // O(N * witness searches) to contract the whole graph; g isn't changed
+    public static ContractionHierarchy
+    build (DirectedWeightedGraph<Integer> g)
+    {
+        return new Builder(g).build();
+    }
+
+    // Growable (node, neighbour, cost, middle node) edge list
+    private static final class
+    EdgeBuffer
+    {
+        int[] node = new int[16], other = new int[16], cost = new int[16], via = new int[16];
+        int size = 0;
+
+        void
+        add (int u, int w, int c, int v)
+        {
+            if (this.size == this.node.length) {
+                int capacity = 2 * this.size;
+                this.node = Arrays.copyOf(this.node, capacity);
+                this.other = Arrays.copyOf(this.other, capacity);
+                this.cost = Arrays.copyOf(this.cost, capacity);
+                this.via = Arrays.copyOf(this.via, capacity);
+            }
+            this.node[this.size] = u;
+            this.other[this.size] = w;
+            this.cost[this.size] = c;
+            this.via[this.size] = v;
+            ++this.size;
+        }
+
+        // O(N + size) counting sort into {offsets, targets, weights, via}
+        int[][]
+        csr (int n_nodes)
+        {
+            int[] offsets = new int[n_nodes + 1];
+            for (int i = 0; i < this.size; ++i) ++offsets[this.node[i] + 1];
+            for (int u = 0; u < n_nodes; ++u) offsets[u + 1] += offsets[u];
+            int[] fill = Arrays.copyOf(offsets, n_nodes);
+            int[] targets = new int[this.size], weights = new int[this.size], via = new int[this.size];
+            for (int i = 0; i < this.size; ++i) {
+                int e = fill[this.node[i]]++;
+                targets[e] = this.other[i];
+                weights[e] = this.cost[i];
+                via[e] = this.via[i];
+            }
+            return new int[][] {offsets, targets, weights, via};
+        }
+    }
+
+    private static final class
+    Builder
+    {
+        final int n_nodes;
+        // Working graph, weights are (cost, middle node)
+        final DirectedWeightedGraph<Integer> work;
+        final int[] contracted_neighbours, rank;
+        final EdgeBuffer up = new EdgeBuffer(), down = new EdgeBuffer();
+        // Witness search state
+        final int[] dist, stamp;
+        final IndexedDaryHeap to_explore;
+        int search = 0;
+
+        Builder (DirectedWeightedGraph<Integer> g)
+        {
+            this.n_nodes = g.n_nodes;
+            this.work = new DirectedWeightedGraph<>(this.n_nodes);
+            for (int u = 0; u < this.n_nodes; ++u) {
+                for (int w : g.edges(u)) {
+                    if (u == w) continue; // loops are never on a shortest path
+                    int cost = g.int_weight(u, w);
+                    if (cost < 0) {
+                        throw new IllegalArgumentException("Negative weight on edge " + u + "-" + w + ".");
+                    }
+                    this.work.link(u, w, cost, -1);
+                }
+            }
+            this.contracted_neighbours = new int[this.n_nodes];
+            this.rank = new int[this.n_nodes];
+            this.dist = new int[this.n_nodes];
+            this.stamp = new int[this.n_nodes];
+            this.to_explore = new IndexedDaryHeap(this.n_nodes);
+        }
+
+        ContractionHierarchy
+        build ()
+        {
+            // Initial ordering
+            IndexedDaryHeap order = new IndexedDaryHeap(this.n_nodes);
+            for (int v = 0; v < this.n_nodes; ++v) {
+                order.push(v, this.priority(v));
+            }
+
+            // Contract in lazily updated priority order
+            int next_rank = 0;
+            while (!order.is_empty()) {
+                int v = order.poll();
+                long priority = this.priority(v);
+                if (!order.is_empty() && priority > order.peek_key()) {
+                    order.push(v, priority); // its priority went stale
+                    continue;
+                }
+                this.rank[v] = next_rank++;
+                this.contract(v);
+            }
+
+            return new ContractionHierarchy(this.n_nodes, this.rank,
+                    this.up.csr(this.n_nodes), this.down.csr(this.n_nodes));
+        }
+
+        // Edge difference plus #contracted neighbours, lower goes first
+        long
+        priority (int v)
+        {
+            int shortcuts = this.shortcuts(v, false);
+            int removed = this.work.edges(v).size() + this.work.in_edges(v).size();
+            return (long) shortcuts - removed + this.contracted_neighbours[v];
+        }
+
+        // Removes v from the working graph, recording its edges in the
+        // hierarchy and adding the shortcuts it needs
+        void
+        contract (int v)
+        {
+            for (int w : this.work.edges(v)) {
+                List<Integer> weight = this.work.weight(v, w);
+                this.up.add(v, w, weight.get(0), weight.get(1));
+                ++this.contracted_neighbours[w];
+            }
+            for (int u : this.work.in_edges(v)) {
+                List<Integer> weight = this.work.weight(u, v);
+                this.down.add(v, u, weight.get(0), weight.get(1));
+                ++this.contracted_neighbours[u];
+            }
+
+            this.shortcuts(v, true);
+
+            this.work.delete_node(v);
+        }
+
+        // Counts (or adds, if insert) the shortcuts contracting v needs
+        int
+        shortcuts (int v, boolean insert)
+        {
+            int n_shortcuts = 0;
+            int max_out = 0;
+            for (int w : this.work.edges(v)) {
+                max_out = Math.max(max_out, this.work.int_weight(v, w));
+            }
+            for (int u : this.work.in_edges(v)) {
+                int to_v = this.work.int_weight(u, v);
+                this.witness_search(u, v, to_v + max_out, insert ? WITNESS_SETTLE_LIMIT : ESTIMATE_SETTLE_LIMIT);
+                for (int w : this.work.edges(v)) {
+                    if (w == u) continue;
+                    int via_v = to_v + this.work.int_weight(v, w);
+                    int witness = this.stamp[w] == this.search ? this.dist[w] : INF;
+                    if (witness <= via_v) continue; // there's a path around v
+                    ++n_shortcuts;
+                    if (insert) {
+                        this.work.link(u, w, via_v, v);
+                    }
+                }
+            }
+            return n_shortcuts;
+        }
+
+        // Dijkstra from u over the uncontracted nodes, v excluded, up to
+        // distance limit or settle_limit settled nodes
+        void
+        witness_search (int u, int v, int limit, int settle_limit)
+        {
+            ++this.search;
+            this.to_explore.clear();
+            this.stamp[u] = this.search;
+            this.dist[u] = 0;
+            this.to_explore.push(u, 0);
+            for (int settled = 0; !this.to_explore.is_empty() && settled < settle_limit; ++settled) {
+                int x = this.to_explore.poll();
+                if (this.dist[x] > limit) break;
+                for (int y : this.work.edges(x)) {
+                    if (y == v) continue;
+                    int dist_y = this.dist[x] + this.work.int_weight(x, y);
+                    if (this.stamp[y] != this.search || dist_y < this.dist[y]) {
+                        this.stamp[y] = this.search;
+                        this.dist[y] = dist_y;
+                        this.to_explore.push(y, dist_y);
+                    }
+                }
+            }
+        }
+    }
+
+    /* Queries */
+
+    private void
+    start (int s, int t)
+    {
+        if (this.dist == null) {
+            this.dist = new int[2][this.n_nodes];
+            this.come_from = new int[2][this.n_nodes];
+            this.stamp = new int[2][this.n_nodes];
+            this.to_explore = new IndexedDaryHeap[] {new IndexedDaryHeap(this.n_nodes), new IndexedDaryHeap(this.n_nodes)};
+            this.query = 0;
+        }
+        if (++this.query == Integer.MAX_VALUE) {
+            Arrays.fill(this.stamp[0], 0);
+            Arrays.fill(this.stamp[1], 0);
+            this.query = 1;
+        }
+        this.to_explore[0].clear();
+        this.to_explore[1].clear();
+        this.meeting = -1;
+    }
+
+    private int
+    dist (int d, int u)
+    {
+        return this.stamp[d][u] == this.query ? this.dist[d][u] : INF;
+    }
+
+    // O(search space of s and t in the hierarchy * lg), typically a few
+    // hundred nodes on road networks; returns 1e9 if t is unreachable
+    public int
+    int_query(int s, int t) {
+        this.start(s, t);
+        int[][] offsets = {this.up_offsets, this.down_offsets};
+        int[][] targets = {this.up_targets, this.down_targets};
+        int[][] weights = {this.up_weights, this.down_weights};
+
+        for (int d = 0; d < 2; ++d) {
+            int source = d == 0 ? s : t;
+            this.stamp[d][source] = this.query;
+            this.dist[d][source] = 0;
+            this.come_from[d][source] = -1;
+            this.to_explore[d].push(source, 0);
+        }
+
+        int best = INF;
+        while (!this.to_explore[0].is_empty() || !this.to_explore[1].is_empty()) {
+            // Pick a side whose frontier can still improve best
+            int d = -1;
+            for (int side = 0; side < 2; ++side) {
+                if (!this.to_explore[side].is_empty() && this.to_explore[side].peek_key() < best
+                        && (d < 0 || this.to_explore[side].peek_key() < this.to_explore[d].peek_key())) {
+                    d = side;
+                }
+            }
+            if (d < 0) break;
+
+            int u = this.to_explore[d].poll();
+            int through_u = this.dist[d][u] + this.dist(1 - d, u);
+            if (through_u < best) {
+                best = through_u;
+                this.meeting = u;
+            }
+            for (int e = offsets[d][u]; e < offsets[d][u + 1]; ++e) {
+                int w = targets[d][e];
+                int dist_w = this.dist[d][u] + weights[d][e];
+                if (dist_w < this.dist(d, w)) {
+                    this.stamp[d][w] = this.query;
+                    this.dist[d][w] = dist_w;
+                    this.come_from[d][w] = u;
+                    this.to_explore[d].push(w, dist_w);
+                }
+            }
+        }
+
+        return best;
+    }
+
+    // O(path length * degree) to rebuild the path found by the last query,
+    // shortcuts unpacked; empty if t was unreachable
+    public int[]
+    path ()
+    {
+        if (this.meeting < 0) {
+            return new int[0];
+        }
+
+        // Hierarchy path: s .. meeting .. t
+        ArrayDeque<Integer> hops = new ArrayDeque<>();
+        for (int u = this.meeting; u != -1; u = this.come_from[0][u]) {
+            hops.addFirst(u);
+        }
+        for (int u = this.come_from[1][this.meeting]; u != -1; u = this.come_from[1][u]) {
+            hops.addLast(u);
+        }
+
+        // Unpack every hop into original edges
+        List<Integer> path = new ArrayList<>();
+        Iterator<Integer> it = hops.iterator();
+        int u = it.next();
+        path.add(u);
+        while (it.hasNext()) {
+            int w = it.next();
+            this.unpack(u, w, path);
+            u = w;
+        }
+
+        int[] result = new int[path.size()];
+        for (int i = 0; i < result.length; ++i) {
+            result[i] = path.get(i);
+        }
+        return result;
+    }
+
+    // Appends the original path of hierarchy edge u->w, u excluded
+    private void
+    unpack (int u, int w, List<Integer> path)
+    {
+        ArrayDeque<int[]> to_unpack = new ArrayDeque<>();
+        to_unpack.push(new int[] {u, w});
+        while (!to_unpack.isEmpty()) {
+            int[] edge = to_unpack.pop();
+            int v = this.via(edge[0], edge[1]);
+            if (v < 0) {
+                path.add(edge[1]);
+            } else {
+                // u->v->w, v contracted before both: first u->v, then v->w
+                to_unpack.push(new int[] {v, edge[1]});
+                to_unpack.push(new int[] {edge[0], v});
+            }
+        }
+    }
+
+    // Middle node of hierarchy edge u->w, -1 if it's an original edge
+    private int
+    via (int u, int w)
+    {
+        if (this.rank[u] < this.rank[w]) {
+            for (int e = this.up_offsets[u]; e < this.up_offsets[u + 1]; ++e) {
+                if (this.up_targets[e] == w) return this.up_via[e];
+            }
+        } else {
+            for (int e = this.down_offsets[w]; e < this.down_offsets[w + 1]; ++e) {
+                if (this.down_targets[e] == u) return this.down_via[e];
+            }
+        }
+        throw new IllegalStateException("No hierarchy edge " + u + "-" + w + ".");
+    }
+
+    /* Serialization helpers */
+
+    // O(N + #Edges) to save the hierarchy
+    public void
+    write (OutputStream out) throws IOException
+    {
+        ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(out));
+        oos.writeObject(this);
+        oos.flush();
+    }
+
+    // O(N + #Edges) to load a saved hierarchy
+    public static ContractionHierarchy
+    read (InputStream in) throws IOException, ClassNotFoundException
+    {
+        ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(in));
+        return (ContractionHierarchy) ois.readObject();
+    }
+}
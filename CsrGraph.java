@@ -0,0 +1,311 @@
+import java.util.*;
+
+/**
+ * The CsrGraph class is an immutable snapshot of a directed graph of nodes
+ * named 0 through N-1, stored in compressed sparse row form.
+ * The out-edges of node u are the edge indices offsets[u] .. offsets[u+1]-1,
+ * targets[e] being the node edge e points to. Weights are kept by column
+ * (column c holds the c-th weight of every edge) as primitive arrays: a column
+ * is stored as int[] when every weight in it is integral and as double[]
+ * otherwise. Edges lacking a weight in a column read it as 0.
+ * Edges keep the order of the adjacency-lists they were frozen from.
+ * The arrays (offsets, targets and the weight columns) are handed out as
+ * they are, without a copy, for the algorithms to loop over them: they
+ * must be treated as read-only, the snapshot is only immutable as long as
+ * nobody writes to them.
+ * As a GraphReader, it can also be searched through GraphSearch.
+ * @author Diogo Peralta Cordeiro <diogo@fc.up.pt>
+ */
+public final class
+CsrGraph implements GraphReader
+{
+    public final int[] offsets, targets;
+    private final int[][] int_weights;       // [column][edge], null if the column isn't integral
+    private final double[][] double_weights; // [column][edge], null if the column is integral
+    public final int n_nodes, n_edges; // N, #Edges, respectively
+
+    // O(1) to wrap already built arrays (they are not copied)
+    CsrGraph (int n_nodes, int[] offsets, int[] targets, int[][] int_weights, double[][] double_weights)
+    {
+        this.n_nodes = n_nodes;
+        this.n_edges = offsets[n_nodes];
+        this.offsets = offsets;
+        this.targets = targets;
+        this.int_weights = int_weights;
+        this.double_weights = double_weights;
+    }
+
+    // O(N + #Edges) to snapshot a DirectedWeightedGraph
+    public static CsrGraph
+    of (DirectedWeightedGraph<?> g)
+    {
+        int n_nodes = g.n_nodes;
+        int[] offsets = new int[n_nodes + 1];
+        int n_columns = 1; // algorithms read column 0, even on unweighted graphs
+        for (int u = 0; u < n_nodes; ++u) {
+            offsets[u + 1] = offsets[u] + g.edges(u).size();
+            for (int w : g.edges(u)) {
+                List<?> weight = g.weight(u, w);
+                if (weight != null) {
+                    n_columns = Math.max(n_columns, weight.size());
+                }
+            }
+        }
+
+        // Decide the primitive type of every column
+        boolean[] integral = new boolean[n_columns];
+        Arrays.fill(integral, true);
+        for (int u = 0; u < n_nodes; ++u) {
+            for (int w : g.edges(u)) {
+                List<?> weight = g.weight(u, w);
+                for (int c = 0; weight != null && c < weight.size(); ++c) {
+                    Object x = weight.get(c);
+                    if (!(x instanceof Integer || x instanceof Short || x instanceof Byte)) {
+                        integral[c] = false;
+                    }
+                }
+            }
+        }
+
+        int n_edges = offsets[n_nodes];
+        int[] targets = new int[n_edges];
+        int[][] int_weights = new int[n_columns][];
+        double[][] double_weights = new double[n_columns][];
+        for (int c = 0; c < n_columns; ++c) {
+            if (integral[c]) {
+                int_weights[c] = new int[n_edges];
+            } else {
+                double_weights[c] = new double[n_edges];
+            }
+        }
+
+        // Fill the rows, preserving adjacency-list order
+        for (int u = 0, e = 0; u < n_nodes; ++u) {
+            for (int w : g.edges(u)) {
+                targets[e] = w;
+                List<?> weight = g.weight(u, w);
+                for (int c = 0; weight != null && c < weight.size(); ++c) {
+                    Number x = (Number) weight.get(c);
+                    if (x == null) continue;
+                    if (integral[c]) {
+                        int_weights[c][e] = x.intValue();
+                    } else {
+                        double_weights[c][e] = x.doubleValue();
+                    }
+                }
+                ++e;
+            }
+        }
+
+        return new CsrGraph(n_nodes, offsets, targets, int_weights, double_weights);
+    }
+
+    // O(1) to get the number of weight columns
+    public int
+    n_columns ()
+    {
+        return this.int_weights.length;
+    }
+
+    /* GraphReader */
+
+    public int
+    n_nodes ()
+    {
+        return this.n_nodes;
+    }
+
+    public long
+    n_edges ()
+    {
+        return this.n_edges;
+    }
+
+    public long
+    first_edge (int u)
+    {
+        return this.offsets[u];
+    }
+
+    public int
+    target (long e)
+    {
+        return this.targets[(int) e];
+    }
+
+    public int
+    int_weight (long e)
+    {
+        return this.int_weights(0)[(int) e];
+    }
+
+    public double
+    double_weight (long e)
+    {
+        int[] column = this.int_weights[0];
+        return column != null ? column[(int) e] : this.double_weights[0][(int) e];
+    }
+
+    // O(1) to know if a weight column is stored as int[]
+    public boolean
+    is_integral (int c)
+    {
+        return this.int_weights[c] != null;
+    }
+
+    // O(1) to get the out-degree of a node
+    public int
+    degree (int u)
+    {
+        return this.offsets[u + 1] - this.offsets[u];
+    }
+
+    // O(1) to get an integral weight column, indexed by edge
+    public int[]
+    int_weights (int c)
+    {
+        if (this.int_weights[c] == null) {
+            throw new ClassCastException("Weight column " + c + " is not integral.");
+        }
+        return this.int_weights[c];
+    }
+
+    // O(1) to get a floating-point weight column, indexed by edge
+    // O(#Edges) the first time an integral column is read as double
+    // (synchronized, so the widened column is safely shared between threads)
+    public synchronized double[]
+    double_weights (int c)
+    {
+        if (this.double_weights[c] == null) {
+            int[] column = this.int_weights[c];
+            double[] widened = new double[column.length];
+            for (int e = 0; e < column.length; ++e) {
+                widened[e] = column[e];
+            }
+            this.double_weights[c] = widened;
+        }
+        return this.double_weights[c];
+    }
+
+    // O(N + #Edges) to build the graph with every edge reversed
+    // Edge e of the transpose, w->u, carries the weights of u->w
+    public CsrGraph
+    transpose ()
+    {
+        int[] offsets = new int[this.n_nodes + 1];
+        for (int e = 0; e < this.n_edges; ++e) {
+            ++offsets[this.targets[e] + 1];
+        }
+        for (int u = 0; u < this.n_nodes; ++u) {
+            offsets[u + 1] += offsets[u];
+        }
+
+        int n_columns = this.n_columns();
+        int[] targets = new int[this.n_edges];
+        int[][] int_weights = new int[n_columns][];
+        double[][] double_weights = new double[n_columns][];
+        for (int c = 0; c < n_columns; ++c) {
+            if (this.int_weights[c] != null) {
+                int_weights[c] = new int[this.n_edges];
+            } else {
+                double_weights[c] = new double[this.n_edges];
+            }
+        }
+
+        // Counting sort of the edges by target, stable on the source
+        int[] fill = Arrays.copyOf(offsets, this.n_nodes);
+        for (int u = 0; u < this.n_nodes; ++u) {
+            for (int e = this.offsets[u]; e < this.offsets[u + 1]; ++e) {
+                int f = fill[this.targets[e]]++;
+                targets[f] = u;
+                for (int c = 0; c < n_columns; ++c) {
+                    if (int_weights[c] != null) {
+                        int_weights[c][f] = this.int_weights[c][e];
+                    } else {
+                        double_weights[c][f] = this.double_weights[c][e];
+                    }
+                }
+            }
+        }
+
+        return new CsrGraph(this.n_nodes, offsets, targets, int_weights, double_weights);
+    }
+
+    /* UTILS */
+
+    // O(#Edges + N*lg(N))
+    public List<Object>
+    int_dijkstra(int s) {
+        return GraphSearch.int_dijkstra(this, s);
+    }
+    public List<Object>
+    double_dijkstra(int s) {
+        return GraphSearch.double_dijkstra(this, s);
+    }
+
+    // O(#Edges + N + max distance) with small weights (Dial's algorithm)
+    // O(#Edges + N*lg(C)) otherwise (radix heap), C being the largest weight
+    // Same results as int_dijkstra, for non-negative integral weights only
+    public List<Object>
+    int_monotone_dijkstra(int s) {
+        /* Set Data Structures */
+        int[] weight = this.int_weights(0);
+        int max_weight = 0;
+        for (int e = 0; e < this.n_edges; ++e) {
+            if (weight[e] < 0) {
+                throw new IllegalArgumentException("Negative weight on edge " + e + ".");
+            }
+            max_weight = Math.max(max_weight, weight[e]);
+        }
+        int[] dist = new int[this.n_nodes];
+        List<List<Integer>> come_from = new ArrayList<>(this.n_nodes);
+        for (int i = 0; i < this.n_nodes; ++i) {
+            dist[i] = 1000000000; // 1e9 to avoid overflow
+            come_from.add(i, new LinkedList<>());
+        }
+        MonotoneQueue to_explore = MonotoneQueue.for_max_weight(this.n_nodes, max_weight);
+
+        // Let's find distances from s
+        dist[s] = 0;
+        to_explore.push(s, 0);
+
+        // Dijkstra's Algorithm
+        while (!to_explore.is_empty()) {
+            int u = to_explore.poll();
+            // Assert: u.distance is the true shortest distance from s to u
+            // Assert: u is never put back into to_explore
+            for (int e = this.offsets[u]; e < this.offsets[u + 1]; ++e) {
+                int w = this.targets[e];
+                int dist_w = dist[u] + weight[e];
+                if (dist_w < dist[w]) {
+                    come_from.get(w).clear();
+                    come_from.get(w).add(u);
+                    // Decrease key with new distance
+                    dist[w] = dist_w;
+                    to_explore.push(w, dist_w);
+                } else if (dist_w == dist[w]) {
+                    come_from.get(w).add(u);
+                }
+            }
+        }
+
+        // That's all folks.
+        return Arrays.asList(dist, come_from);
+    }
+
+    // O(#Edges + N*lg(N))
+    public int[]
+    int_prim() {
+        return GraphSearch.int_prim(this);
+    }
+    public int[]
+    double_prim() {
+        return GraphSearch.double_prim(this);
+    }
+
+    // O(k*#Edges), k <= N being the #edges of the longest shortest path
+    public int[]
+    int_bellman_ford (int s) throws NegativeCycleException {
+        return GraphSearch.int_bellman_ford(this, s);
+    }
+}
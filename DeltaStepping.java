@@ -0,0 +1,253 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The DeltaStepping class computes single-source shortest paths over a
+ * CsrGraph with non-negative weights (weight column 0) using Meyer and
+ * Sanders' delta-stepping on a ForkJoinPool.
+ * Tentative distances are kept in buckets of width delta. The nodes of the
+ * lowest bucket are settled together: their light edges (weight <= delta),
+ * which may refill the same bucket, are relaxed in parallel until it stays
+ * empty, then their heavy edges are relaxed in parallel once.
+ * Relaxations lower distances with compare-and-set, so the result is the
+ * same distance array as int_dijkstra/double_dijkstra (1e9 if unreachable).
+ * A delta of 1 behaves like Dijkstra's algorithm, a delta as large as the
+ * largest distance like Bellman-Ford; the average edge weight times a small
+ * constant is a good start on road networks.
+ * @author Diogo Peralta Cordeiro <diogo@fc.up.pt>
+ */
+public final class
+DeltaStepping
+{
+    private static final int INF = 1000000000; // 1e9 to avoid overflow
+    private static final int SEQUENTIAL_THRESHOLD = 512; // frontier nodes per task
+
+    private final CsrGraph g;
+    private final ForkJoinPool pool;
+
+    // O(1) to construct the structure
+    public
+    DeltaStepping (CsrGraph g, ForkJoinPool pool)
+    {
+        this.g = g;
+        this.pool = pool;
+    }
+    public
+    DeltaStepping (CsrGraph g)
+    {
+        this(g, ForkJoinPool.commonPool());
+    }
+
+    // O(#Edges + N) work per "round", about (max distance / delta) rounds
+    public int[]
+    int_sssp(int s, int delta) {
+        if (delta < 1) throw new IllegalArgumentException("delta must be positive.");
+        long[] dist = this.run(s, this.g.int_weights(0), null, delta);
+        int[] result = new int[dist.length];
+        for (int u = 0; u < dist.length; ++u) {
+            result[u] = (int) dist[u];
+        }
+        return result;
+    }
+    public double[]
+    double_sssp(int s, double delta) {
+        if (!(delta > 0)) throw new IllegalArgumentException("delta must be positive.");
+        long[] dist = this.run(s, null, this.g.double_weights(0), delta);
+        double[] result = new double[dist.length];
+        for (int u = 0; u < dist.length; ++u) {
+            result[u] = IndexedDaryHeap.key_double(dist[u]);
+        }
+        return result;
+    }
+
+    /* Engine, over long distances: the int ones as they are, the double
+     * ones mapped through IndexedDaryHeap.double_key() (order-preserving,
+     * so the same compare-and-set minimum works for both) */
+
+    private long[]
+    run (int s, int[] int_weight, double[] double_weight, double delta)
+    {
+        int n_nodes = this.g.n_nodes;
+        boolean integral = int_weight != null;
+        for (int e = 0; e < this.g.n_edges; ++e) {
+            if (integral ? int_weight[e] < 0 : double_weight[e] < 0) {
+                throw new IllegalArgumentException("Negative weight on edge " + e + ".");
+            }
+        }
+
+        long inf = integral ? INF : IndexedDaryHeap.double_key(INF);
+        AtomicLongArray dist = new AtomicLongArray(n_nodes);
+        for (int u = 0; u < n_nodes; ++u) {
+            dist.set(u, inf);
+        }
+        dist.set(s, integral ? 0 : IndexedDaryHeap.double_key(0));
+
+        // bucket index -> nodes that were lowered into it (maybe stale)
+        TreeMap<Long, IntBuffer> buckets = new TreeMap<>();
+        buckets.computeIfAbsent(0L, b -> new IntBuffer()).add(s);
+        int[] stamp = new int[n_nodes]; // dedupes frontiers
+        int phase = 0;
+
+        while (!buckets.isEmpty()) {
+            long i = buckets.firstKey();
+            IntBuffer settled = new IntBuffer();
+
+            // Light edges, until bucket i stays empty
+            IntBuffer candidates;
+            while ((candidates = buckets.remove(i)) != null) {
+                ++phase;
+                IntBuffer frontier = new IntBuffer();
+                for (int k = 0; k < candidates.size; ++k) {
+                    int u = candidates.data[k];
+                    if (stamp[u] != phase && this.bucket(dist.get(u), integral, delta) == i) {
+                        stamp[u] = phase;
+                        frontier.add(u);
+                        settled.add(u);
+                    }
+                }
+                if (frontier.size == 0) break;
+                IntBuffer lowered = this.pool.invoke(new Relax(frontier.data, 0, frontier.size, true,
+                        dist, int_weight, double_weight, delta));
+                this.file(lowered, buckets, dist, integral, delta);
+            }
+
+            // Heavy edges, once per settled node
+            ++phase;
+            int n = 0;
+            for (int k = 0; k < settled.size; ++k) {
+                int u = settled.data[k];
+                if (stamp[u] != phase) {
+                    stamp[u] = phase;
+                    settled.data[n++] = u;
+                }
+            }
+            IntBuffer lowered = this.pool.invoke(new Relax(settled.data, 0, n, false,
+                    dist, int_weight, double_weight, delta));
+            this.file(lowered, buckets, dist, integral, delta);
+        }
+
+        long[] result = new long[n_nodes];
+        for (int u = 0; u < n_nodes; ++u) {
+            result[u] = dist.get(u);
+        }
+        return result;
+    }
+
+    private long
+    bucket (long key, boolean integral, double delta)
+    {
+        return integral ? key / (long) delta : (long) Math.floor(IndexedDaryHeap.key_double(key) / delta);
+    }
+
+    // Puts every lowered node in the bucket of its current distance
+    private void
+    file (IntBuffer lowered, TreeMap<Long, IntBuffer> buckets, AtomicLongArray dist, boolean integral, double delta)
+    {
+        for (int k = 0; k < lowered.size; ++k) {
+            int w = lowered.data[k];
+            buckets.computeIfAbsent(this.bucket(dist.get(w), integral, delta), b -> new IntBuffer()).add(w);
+        }
+    }
+
+    // Relaxes the light (or heavy) edges of frontier[lo..hi), returning
+    // the nodes whose distance it lowered
+    private final class
+    Relax
+            extends RecursiveTask<IntBuffer>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] frontier;
+        private final int lo, hi;
+        private final boolean light;
+        private final AtomicLongArray dist;
+        private final int[] int_weight;
+        private final double[] double_weight;
+        private final double delta;
+
+        Relax (int[] frontier, int lo, int hi, boolean light, AtomicLongArray dist,
+               int[] int_weight, double[] double_weight, double delta)
+        {
+            this.frontier = frontier;
+            this.lo = lo;
+            this.hi = hi;
+            this.light = light;
+            this.dist = dist;
+            this.int_weight = int_weight;
+            this.double_weight = double_weight;
+            this.delta = delta;
+        }
+
+        @Override
+        protected IntBuffer
+        compute ()
+        {
+            if (this.hi - this.lo > SEQUENTIAL_THRESHOLD) {
+                int mid = (this.lo + this.hi) >>> 1;
+                Relax left = new Relax(this.frontier, this.lo, mid, this.light, this.dist,
+                        this.int_weight, this.double_weight, this.delta);
+                Relax right = new Relax(this.frontier, mid, this.hi, this.light, this.dist,
+                        this.int_weight, this.double_weight, this.delta);
+                left.fork();
+                IntBuffer lowered = right.compute();
+                lowered.add_all(left.join());
+                return lowered;
+            }
+
+            IntBuffer lowered = new IntBuffer();
+            int[] offsets = DeltaStepping.this.g.offsets, targets = DeltaStepping.this.g.targets;
+            for (int k = this.lo; k < this.hi; ++k) {
+                int u = this.frontier[k];
+                long dist_u = this.dist.get(u);
+                for (int e = offsets[u]; e < offsets[u + 1]; ++e) {
+                    long dist_w;
+                    if (this.int_weight != null) {
+                        if ((this.int_weight[e] <= this.delta) != this.light) continue;
+                        dist_w = dist_u + this.int_weight[e];
+                    } else {
+                        if ((this.double_weight[e] <= this.delta) != this.light) continue;
+                        dist_w = IndexedDaryHeap.double_key(IndexedDaryHeap.key_double(dist_u) + this.double_weight[e]);
+                    }
+                    // Lower dist[w] to dist_w unless someone got it lower
+                    int w = targets[e];
+                    for (long current = this.dist.get(w); dist_w < current; current = this.dist.get(w)) {
+                        if (this.dist.compareAndSet(w, current, dist_w)) {
+                            lowered.add(w);
+                            break;
+                        }
+                    }
+                }
+            }
+            return lowered;
+        }
+    }
+
+    // Growable int array
+    private static final class
+    IntBuffer
+    {
+        int[] data = new int[16];
+        int size = 0;
+
+        void
+        add (int x)
+        {
+            if (this.size == this.data.length) {
+                this.data = Arrays.copyOf(this.data, 2 * this.size);
+            }
+            this.data[this.size++] = x;
+        }
+
+        void
+        add_all (IntBuffer other)
+        {
+            if (this.size + other.size > this.data.length) {
+                this.data = Arrays.copyOf(this.data, Math.max(2 * this.data.length, this.size + other.size));
+            }
+            System.arraycopy(other.data, 0, this.data, this.size, other.size);
+            this.size += other.size;
+        }
+    }
+}
@@ -73,6 +73,24 @@ DirectedMultiGraph
         }
     }
 
+    // O(N + #Edges) to take an immutable CSR snapshot of the graph, with a
+    // single all-zero weight column (parallel edges are kept)
+    public CsrGraph
+    freeze ()
+    {
+        int[] offsets = new int[this.n_nodes + 1];
+        for (int u = 0; u < this.n_nodes; ++u) {
+            offsets[u + 1] = offsets[u] + this.edges(u).size();
+        }
+        int[] targets = new int[offsets[this.n_nodes]];
+        for (int u = 0, e = 0; u < this.n_nodes; ++u) {
+            for (int w : this.edges(u)) {
+                targets[e++] = w;
+            }
+        }
+        return new CsrGraph(this.n_nodes, offsets, targets, new int[][] {new int[targets.length]}, new double[1][]);
+    }
+
     // Convenience: In case the requester needs to hold such type of information about the nodes
     public boolean[] seen;
     public
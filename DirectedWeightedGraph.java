@@ -3,45 +3,127 @@ import java.util.*;
 /**
  * The DirectedWeightedGraph class is a structure to store a n-weighted
  * graph of nodes named 0 through N-1.
- * The implementation uses an adjacency-lists representation for the graph
- * and a HashMap indexed by strings of the form "u-v", u and v being nodes,
- * the map's values are a List of generic type.
+ * The implementation uses an adjacency-lists representation for the graph,
+ * with a reverse adjacency-list of in-edges per node kept alongside, and
+ * an EdgeWeightIndex keyed by the edge u->w packed in a long, u and w
+ * being nodes, the index's values are a List of generic type (kept unboxed
+ * for edges with a single Integer or Double weight).
  * Each edge can have a different number of weights (or even none).
+ * Every entry of an adjacency-list knows where its edge sits in the list
+ * at the other end, and the index knows where it sits in u's, so removing
+ * an edge is O(1): the last entry of each list fills its place (which
+ * changes the order of the lists).
  * @author Diogo Peralta Cordeiro <diogo@fc.up.pt>
  */
 public class
 DirectedWeightedGraph<T>
 {
-    private final List<LinkedList<Integer>> edges;
-    private final Map<String, List<T>> edges_weights;
+    private final List<Adjacency> edges;
+    private final List<Adjacency> in_edges; // w -> every u with an edge u->w
+    private final EdgeWeightIndex<T> edges_weights;
     public int n_nodes, n_edges; // N, #Edges, respectively
+    private long version; // bumped by every change, see ShortestPathCache
 
-    // O(n) to construct the structure
+    // O(n + expected_edges) to construct the structure, sized for
+    // expected_edges edges (bulk loads then never rehash)
     public
-    DirectedWeightedGraph (int n_nodes)
+    DirectedWeightedGraph (int n_nodes, int expected_edges)
     {
         this.n_nodes = n_nodes;
         this.n_edges = 0;
+        this.version = 0;
         this.edges = new ArrayList<>(n_nodes);
-        this.edges_weights = new HashMap<>(n_nodes);
+        this.in_edges = new ArrayList<>(n_nodes);
+        this.edges_weights = new EdgeWeightIndex<>(expected_edges);
         for (int i = 0; i < n_nodes; ++i)
         {
-            this.edges.add(i, new LinkedList<>());
+            this.edges.add(i, new Adjacency());
+            this.in_edges.add(i, new Adjacency());
         }
     }
+    // O(n) to construct the structure
+    public
+    DirectedWeightedGraph (int n_nodes)
+    {
+        this(n_nodes, n_nodes);
+    }
+
+    // O(N + #Edges) expected to build the graph of a CsrGraph's weight
+    // column c, every list sized upfront and no weight boxed; a repeated
+    // edge keeps its last weight, as with link()
+    public static DirectedWeightedGraph<Integer>
+    int_of (CsrGraph g, int c)
+    {
+        return of(g, g.int_weights(c), null);
+    }
+    public static DirectedWeightedGraph<Double>
+    double_of (CsrGraph g, int c)
+    {
+        return of(g, null, g.double_weights(c));
+    }
+
+    private static <T> DirectedWeightedGraph<T>
+    of (CsrGraph g, int[] int_weight, double[] double_weight)
+    {
+        DirectedWeightedGraph<T> graph = new DirectedWeightedGraph<>(g.n_nodes, g.n_edges);
+        int[] in_degree = new int[g.n_nodes];
+        for (int e = 0; e < g.n_edges; ++e) {
+            ++in_degree[g.targets[e]];
+        }
+        for (int u = 0; u < g.n_nodes; ++u) {
+            graph.edges.get(u).reserve(g.offsets[u + 1] - g.offsets[u]);
+            graph.in_edges.get(u).reserve(in_degree[u]);
+        }
+        for (int u = 0; u < g.n_nodes; ++u) {
+            Adjacency out = graph.edges.get(u);
+            for (int e = g.offsets[u]; e < g.offsets[u + 1]; ++e) {
+                int w = g.targets[e];
+                Adjacency in = graph.in_edges.get(w);
+                boolean added = int_weight != null
+                        ? graph.edges_weights.put(u, w, int_weight[e], out.size)
+                        : graph.edges_weights.put(u, w, double_weight[e], out.size);
+                if (added) {
+                    out.add(w, in.size);
+                    in.add(u, out.size - 1);
+                    ++graph.n_edges;
+                }
+            }
+        }
+        return graph;
+    }
 
     // O(1) to get the adjacency-list for a node
-    public LinkedList<Integer>
+    public List<Integer>
     edges (int u)
     {
         return this.edges.get(u);
     }
 
-    // O(1) to get the weights list
+    // O(1) to get the reverse adjacency-list for a node: the nodes with an
+    // edge to it, i.e., its adjacency-list in the transposed graph
+    public List<Integer>
+    in_edges (int w)
+    {
+        return this.in_edges.get(w);
+    }
+
+    // O(1) to get the weights list, read-only (link() updates it)
     public List<T>
     weight (int u, int w)
     {
-        return this.edges_weights.get(u + "-" + w);
+        return this.edges_weights.get(u, w);
+    }
+
+    // O(1) to get the first weight of an edge, without boxing
+    public int
+    int_weight (int u, int w)
+    {
+        return this.edges_weights.int_weight(u, w);
+    }
+    public double
+    double_weight (int u, int w)
+    {
+        return this.edges_weights.double_weight(u, w);
     }
 
     // O(1) to add a node to the last position of the adjacency-list
@@ -50,40 +132,175 @@ DirectedWeightedGraph<T>
     public final void
     link (int u, int w, T... weight)
     {
-        // O(1) to ensure we don't make a MultiGraph
-        if (!this.edges(u).contains(w)) {
-            // O(1) to add an adjacency
-            this.edges(u).addLast(w);
-            
-            ++this.n_edges;
+        // The index may keep the weights: copy them out of the caller's
+        // array, element by element, so the array itself never escapes
+        @SuppressWarnings("unchecked")
+        T[] weights = (T[]) new Object[weight.length];
+        for (int i = 0; i < weight.length; ++i) {
+            weights[i] = weight[i];
         }
 
-        // O(1) to put or update a weight, if we want to
-        this.edges_weights.put(u + "-" + w, Arrays.asList(weight));
+        // O(1) to put or update a weight, if we want to, and to ensure we
+        // don't make a MultiGraph (only new edges get an adjacency)
+        Adjacency out = this.edges.get(u), in = this.in_edges.get(w);
+        if (this.edges_weights.put(u, w, weights, out.size)) {
+            // O(1) amortized to add an adjacency, each end knowing the other
+            out.add(w, in.size);
+            in.add(u, out.size - 1);
+
+            ++this.n_edges;
+        }
+        ++this.version;
     }
 
-    // O(n) to remove a node
+    // O(in + out degree of u) to remove every edge to or from a node
     public void
     delete_node (int u)
     {
-        for (int w = 0; w < this.n_nodes; ++w)
-        {
-            this.unlink(u, w);
-            this.unlink(w, u);
+        ++this.version;
+        Adjacency out = this.edges.get(u), in = this.in_edges.get(u);
+        for (int i = 0; i < out.size; ++i) {
+            int w = out.nodes[i];
+            this.remove_in(w, out.twins[i]);
+            this.edges_weights.remove(u, w);
+            --this.n_edges;
         }
+        out.clear();
+        for (int j = 0; j < in.size; ++j) {
+            int v = in.nodes[j];
+            this.remove_out(v, in.twins[j]);
+            this.edges_weights.remove(v, u);
+            --this.n_edges;
+        }
+        in.clear();
     }
 
-    // O(n) to remove an adjacency
+    // O(1) to remove an adjacency
     public void
     unlink (int u, int w)
     {
-        // O(n)
-        this.edges(u).remove((Integer) w);
+        // O(1) to find the edge in u's adjacency-list, ignoring edges
+        // that aren't there
+        int i = this.edges_weights.position(u, w);
+        if (i < 0) return;
 
-        // O(1)
-        this.edges_weights.remove(u + "-" + w);
+        // O(1) to take it out of both lists, then out of the index
+        this.remove_in(w, this.edges.get(u).twins[i]);
+        this.remove_out(u, i);
+        this.edges_weights.remove(u, w);
 
         --this.n_edges;
+        ++this.version;
+    }
+
+    // O(1) to remove position i of u's adjacency-list, telling the edge
+    // moved into its place about its new position
+    private void
+    remove_out (int u, int i)
+    {
+        Adjacency out = this.edges.get(u);
+        if (out.swap_remove(i)) {
+            int w = out.nodes[i];
+            this.in_edges.get(w).twins[out.twins[i]] = i;
+            this.edges_weights.set_position(u, w, i);
+        }
+    }
+    // O(1) to remove position j of w's reverse adjacency-list
+    private void
+    remove_in (int w, int j)
+    {
+        Adjacency in = this.in_edges.get(w);
+        if (in.swap_remove(j)) {
+            this.edges.get(in.nodes[j]).twins[in.twins[j]] = j;
+        }
+    }
+
+    // O(1) to get the modification version: it changes whenever the graph does
+    public long
+    version ()
+    {
+        return this.version;
+    }
+
+    // O(N + #Edges) to take an immutable CSR snapshot of the graph
+    // (later changes to this graph won't be seen by the snapshot)
+    public CsrGraph
+    freeze ()
+    {
+        return CsrGraph.of(this);
+    }
+
+    /**
+     * An adjacency-list: the nodes at the other end of a node's edges,
+     * boxed once when linked, and, for each, the position of the same edge
+     * in that node's list in the other direction.
+     */
+    private static final class
+    Adjacency extends AbstractList<Integer>
+    {
+        private static final Integer[] NO_NODES = {};
+        private static final int[] NO_TWINS = {};
+
+        private Integer[] nodes = NO_NODES;
+        private int[] twins = NO_TWINS;
+        private int size;
+
+        public Integer
+        get (int i)
+        {
+            Objects.checkIndex(i, this.size);
+            return this.nodes[i];
+        }
+
+        public int
+        size ()
+        {
+            return this.size;
+        }
+
+        // O(capacity) to make room for capacity nodes
+        void
+        reserve (int capacity)
+        {
+            if (capacity > this.nodes.length) {
+                this.nodes = Arrays.copyOf(this.nodes, capacity);
+                this.twins = Arrays.copyOf(this.twins, capacity);
+            }
+        }
+
+        // O(1) amortized to add a node to the last position
+        void
+        add (int node, int twin)
+        {
+            if (this.size == this.nodes.length) {
+                this.reserve(Math.max(2, 2 * this.size));
+            }
+            this.nodes[this.size] = node;
+            this.twins[this.size] = twin;
+            ++this.size;
+            ++this.modCount;
+        }
+
+        // O(1) to remove position i, the last node taking its place
+        // Returns true if one did (and its twin must be told)
+        boolean
+        swap_remove (int i)
+        {
+            int last = --this.size;
+            this.nodes[i] = this.nodes[last];
+            this.twins[i] = this.twins[last];
+            this.nodes[last] = null;
+            ++this.modCount;
+            return i != last;
+        }
+
+        public void
+        clear ()
+        {
+            Arrays.fill(this.nodes, 0, this.size, null);
+            this.size = 0;
+            ++this.modCount;
+        }
     }
 
     /* UTILS */
@@ -98,28 +315,27 @@ DirectedWeightedGraph<T>
             dist[i] = 1000000000; // 1e9 to avoid overflow
             come_from.add(i, new LinkedList<>());
         }
-        // Compare by distance, then by index
-        TreeSet<Integer> to_explore = new TreeSet<>(Comparator.comparingInt((Integer i) -> dist[i]).thenComparingInt(i -> i));
+        // Min-heap of nodes by distance, decreased in place
+        IndexedDaryHeap to_explore = new IndexedDaryHeap(this.n_nodes);
 
         // Let's find distances from s
         dist[s] = 0;
-        to_explore.add(s);
+        to_explore.push(s, 0);
 
         // Dijkstra's Algorithm
-        while (!to_explore.isEmpty()) {
-            int u = to_explore.pollFirst();
+        while (!to_explore.is_empty()) {
+            int u = to_explore.poll();
             // Assert: u.distance is the true shortest distance from s to u
             // Assert: u is never put back into to_explore
             this.edges(u).forEach((w) -> {
-                int edge_cost = (int) this.weight(u, w).get(0);
+                int edge_cost = this.int_weight(u, w);
                 int dist_w = dist[u] + edge_cost;
                 if (dist_w < dist[w]) {
                     come_from.get(w).clear();
                     come_from.get(w).add(u);
                     // Decrease key with new distance
-                    to_explore.remove(w);
                     dist[w] = dist_w;
-                    to_explore.add(w);
+                    to_explore.push(w, dist[w]);
                 } else if (dist_w == dist[w]) {
                     come_from.get(w).add(u);
                 }
@@ -138,28 +354,27 @@ DirectedWeightedGraph<T>
             dist[i] = 1000000000; // 1e9 to avoid overflow
             come_from.add(i, new LinkedList<>());
         }
-        // Compare by distance, then by index
-        TreeSet<Integer> to_explore = new TreeSet<>(Comparator.comparingDouble((Integer i) -> dist[i]).thenComparingInt(i -> i));
+        // Min-heap of nodes by distance, decreased in place
+        IndexedDaryHeap to_explore = new IndexedDaryHeap(this.n_nodes);
 
         // Let's find distances from s
         dist[s] = 0;
-        to_explore.add(s);
+        to_explore.push(s, IndexedDaryHeap.double_key(0));
 
         // Dijkstra's Algorithm
-        while (!to_explore.isEmpty()) {
-            int u = to_explore.pollFirst();
+        while (!to_explore.is_empty()) {
+            int u = to_explore.poll();
             // Assert: u.distance is the true shortest distance from s to u
             // Assert: u is never put back into to_explore
             this.edges(u).forEach((w) -> {
-                double edge_cost = (double) this.weight(u, w).get(0);
+                double edge_cost = this.double_weight(u, w);
                 double dist_w = dist[u] + edge_cost;
                 if (Double.compare(dist_w, dist[w]) < 0) {
                     come_from.get(w).clear();
                     come_from.get(w).add(u);
                     // Decrease key with new distance
-                    to_explore.remove(w);
                     dist[w] = dist_w;
-                    to_explore.add(w);
+                    to_explore.push(w, IndexedDaryHeap.double_key(dist[w]));
                 } else if (Double.compare(dist_w, dist[w]) == 0) {
                     come_from.get(w).add(u);
                 }
@@ -170,6 +385,58 @@ DirectedWeightedGraph<T>
         return Arrays.asList(dist, come_from);
     }
 
+    // O(#Edges + N + max distance) with small weights (Dial's algorithm)
+    // O(#Edges + N*lg(C)) otherwise (radix heap), C being the largest weight
+    // Same results as int_dijkstra, for non-negative integral weights only
+    public List<Object>
+    int_monotone_dijkstra(int s) {
+        /* Set Data Structures */
+        int max_weight = 0;
+        for (int u = 0; u < this.n_nodes; ++u) {
+            for (int w : this.edges(u)) {
+                int edge_cost = this.int_weight(u, w);
+                if (edge_cost < 0) {
+                    throw new IllegalArgumentException("Negative weight on edge " + u + "-" + w + ".");
+                }
+                max_weight = Math.max(max_weight, edge_cost);
+            }
+        }
+        int[] dist = new int[this.n_nodes];
+        List<List<Integer>> come_from = new ArrayList<>(this.n_nodes);
+        for (int i = 0; i < this.n_nodes; ++i) {
+            dist[i] = 1000000000; // 1e9 to avoid overflow
+            come_from.add(i, new LinkedList<>());
+        }
+        MonotoneQueue to_explore = MonotoneQueue.for_max_weight(this.n_nodes, max_weight);
+
+        // Let's find distances from s
+        dist[s] = 0;
+        to_explore.push(s, 0);
+
+        // Dijkstra's Algorithm
+        while (!to_explore.is_empty()) {
+            int u = to_explore.poll();
+            // Assert: u.distance is the true shortest distance from s to u
+            // Assert: u is never put back into to_explore
+            this.edges(u).forEach((w) -> {
+                int edge_cost = this.int_weight(u, w);
+                int dist_w = dist[u] + edge_cost;
+                if (dist_w < dist[w]) {
+                    come_from.get(w).clear();
+                    come_from.get(w).add(u);
+                    // Decrease key with new distance
+                    dist[w] = dist_w;
+                    to_explore.push(w, dist_w);
+                } else if (dist_w == dist[w]) {
+                    come_from.get(w).add(u);
+                }
+            });
+        }
+
+        // That's all folks.
+        return Arrays.asList(dist, come_from);
+    }
+
     // O(#Edges + N*lg(N))
     public int[]
     int_prim() {
@@ -178,26 +445,25 @@ DirectedWeightedGraph<T>
         boolean[] in_tree = new boolean[this.n_nodes];
         int[] come_from = new int[this.n_nodes];
         Arrays.fill(dist, 1000000000); // 1e9 to avoid overflow
-        TreeSet<Integer> to_explore = new TreeSet<>(Comparator.comparingInt((Integer i) -> dist[i]).thenComparingInt(i -> i));
+        IndexedDaryHeap to_explore = new IndexedDaryHeap(this.n_nodes);
 
         // Let's find distances from s
         int s = 0;
         dist[s] = 0;
-        to_explore.add(s);
+        to_explore.push(s, 0);
 
-        while (!to_explore.isEmpty()) {
-            int u = to_explore.pollFirst();
+        while (!to_explore.is_empty()) {
+            int u = to_explore.poll();
             in_tree[u] = true;
             // Let t be the graph made of nodes with in_tree = true,
             // and edges {(w - come_from[w]), for w in g.nodes excluding s}
             // Assert: t is part of an MST for g
             this.edges(u).forEach((w) -> {
-                int edge_cost = (int) this.weight(u, w).get(0);
+                int edge_cost = this.int_weight(u, w);
                 if (!in_tree[w] && edge_cost < dist[w]) {
                     come_from[w] = u;
-                    to_explore.remove(w);
                     dist[w] = edge_cost;
-                    to_explore.add(w);
+                    to_explore.push(w, dist[w]);
                 }
             });
         }
@@ -212,26 +478,25 @@ DirectedWeightedGraph<T>
         boolean[] in_tree = new boolean[this.n_nodes];
         int[] come_from = new int[this.n_nodes];
         Arrays.fill(dist, 1000000000); // 1e9 to avoid overflow
-        TreeSet<Integer> to_explore = new TreeSet<>(Comparator.comparingDouble((Integer i) -> dist[i]).thenComparingInt(i -> i));
+        IndexedDaryHeap to_explore = new IndexedDaryHeap(this.n_nodes);
 
         // Let's find distances from s
         int s = 0;
         dist[s] = 0;
-        to_explore.add(s);
+        to_explore.push(s, IndexedDaryHeap.double_key(0));
 
-        while (!to_explore.isEmpty()) {
-            int u = to_explore.pollFirst();
+        while (!to_explore.is_empty()) {
+            int u = to_explore.poll();
             in_tree[u] = true;
             // Let t be the graph made of nodes with in_tree = true,
             // and edges {(w - come_from[w]), for w in g.nodes excluding s}
             // Assert: t is part of an MST for g
             this.edges(u).forEach((w) -> {
-                double edge_cost = (double) this.weight(u, w).get(0);
+                double edge_cost = this.double_weight(u, w);
                 if (!in_tree[w] && Double.compare(edge_cost, dist[w]) < 0) {
                     come_from[w] = u;
-                    to_explore.remove(w);
                     dist[w] = edge_cost;
-                    to_explore.add(w);
+                    to_explore.push(w, IndexedDaryHeap.double_key(dist[w]));
                 }
             });
         }
@@ -240,32 +505,38 @@ DirectedWeightedGraph<T>
         return come_from;
     }
 
-    // O(N*#Edges)
+    // O(k*#Edges), k <= N being the #edges of the longest shortest path
     public int[]
-    int_bellman_ford (int s) throws Exception {
+    int_bellman_ford (int s) throws NegativeCycleException {
         int[] min_weight = new int[this.n_nodes];
+        int[] come_from = new int[this.n_nodes];
         // best estimate so far of minimum weight from s to another vertex
         Arrays.fill(min_weight, 1000000000); // 1e9 to avoid overflow
+        Arrays.fill(come_from, -1);
         min_weight[s] = 0;
 
-        // Repeat
+        // Repeat, until a pass changes nothing
         for (int i = 0; i < this.n_nodes; ++i) {
+            int last_lowered = -1;
             // relax all the edges
             for (int u = 0; u < this.n_nodes; ++u) {
                 for (int w : this.edges(u)) {
-                    int edge_cost = (int) this.weight(u, w).get(0);
-                    min_weight[w] = Math.min(min_weight[u] + edge_cost, min_weight[w]);
+                    int edge_cost = this.int_weight(u, w);
+                    if (min_weight[u] + edge_cost < min_weight[w]) {
+                        min_weight[w] = min_weight[u] + edge_cost;
+                        come_from[w] = u;
+                        last_lowered = w;
+                    }
                     // Assert: v.min_weight >= true minimum weight from s to v
                 }
             }
-        }
-
-        for (int u = 0; u < this.n_nodes; ++u) {
-            for (int w : this.edges(u)) {
-                int edge_cost = (int) this.weight(u, w).get(0);
-                if (min_weight[u] + edge_cost < min_weight[w]) {
-                    throw new Exception("Negative-weight cycle detected.");
-                }
+            if (last_lowered < 0) {
+                // That's all folks.
+                return min_weight;
+            }
+            if (i == this.n_nodes - 1) {
+                // A shortest path never takes N passes
+                throw new NegativeCycleException(BellmanFord.find_cycle(come_from, last_lowered));
             }
         }
 
@@ -0,0 +1,270 @@
+import java.util.*;
+
+/**
+ * The DynamicShortestPaths class keeps the shortest paths from a source s
+ * of a DirectedWeightedGraph<Integer> with positive weights up to date
+ * while edges are linked, reweighted and unlinked, after Ramalingam and
+ * Reps' dynamic SSSP algorithm.
+ * Besides dist, every node v keeps its number of tight in-edges, those
+ * u->v with dist(u) + c(u->v) = dist(v), that is, its in-degree in the
+ * shortest-path DAG (the come_from of int_dijkstra).
+ *  - When an edge gets cheaper (or appears), only the nodes whose distance
+ *    goes down are relaxed, by a Dijkstra seeded at its head.
+ *  - When an edge gets dearer (or disappears) and it was the last tight
+ *    in-edge of its head, the nodes that lose every shortest path are
+ *    collected by walking the DAG, then given new distances by a Dijkstra
+ *    seeded from their unaffected in-neighbours.
+ * Either way the work is proportional to the affected nodes and their
+ * edges, not to the whole graph.
+ * Every change must go through link() and unlink() here; if the graph is
+ * changed behind this structure's back (its version() moves), the paths
+ * are recomputed from scratch on the next call.
+ * @author Diogo Peralta Cordeiro <diogo@fc.up.pt>
+ */
+public final class
+DynamicShortestPaths
+{
+    private static final int INF = 1000000000; // 1e9 to avoid overflow
+
+    public final int source;
+    private final DirectedWeightedGraph<Integer> g;
+    private final int[] dist, n_tight;
+    private final int[] mark; // == epoch if affected by the current update
+    private final int[] affected;
+    private final IndexedDaryHeap to_explore;
+    private int epoch, n_affected;
+    private long version;
+
+    // O(#Edges + N*lg(N)) to construct the structure
+    public
+    DynamicShortestPaths (DirectedWeightedGraph<Integer> g, int s)
+    {
+        this.g = g;
+        this.source = s;
+        this.dist = new int[g.n_nodes];
+        this.n_tight = new int[g.n_nodes];
+        this.mark = new int[g.n_nodes];
+        this.affected = new int[g.n_nodes];
+        this.to_explore = new IndexedDaryHeap(g.n_nodes);
+        this.recompute();
+    }
+
+    // O(#Edges + N*lg(N)) to find every distance from scratch
+    private void
+    recompute ()
+    {
+        for (int u = 0; u < this.g.n_nodes; ++u) {
+            for (int w : this.g.edges(u)) {
+                positive(u, w, this.g.int_weight(u, w));
+            }
+        }
+        Arrays.fill(this.dist, INF);
+        this.dist[this.source] = 0;
+        this.to_explore.clear();
+        this.to_explore.push(this.source, 0);
+        this.relax();
+
+        Arrays.fill(this.n_tight, 0);
+        for (int u = 0; u < this.g.n_nodes; ++u) {
+            for (int w : this.g.edges(u)) {
+                if (this.tight(u, w, this.g.int_weight(u, w))) ++this.n_tight[w];
+            }
+        }
+        this.n_affected = this.g.n_nodes;
+        this.version = this.g.version();
+    }
+
+    private static void
+    positive (int u, int w, int weight)
+    {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Non-positive weight on edge " + u + "-" + w + ".");
+        }
+    }
+
+    private boolean
+    tight (int u, int w, int weight)
+    {
+        return this.dist[u] != INF && this.dist[u] + weight == this.dist[w];
+    }
+
+    // Recomputes everything if the graph changed behind our back
+    private void
+    sync ()
+    {
+        if (this.g.version() != this.version) this.recompute();
+    }
+
+    // O(affected nodes' edges + affected nodes * lg(N)) to link u->w or
+    // change its weight
+    public void
+    link (int u, int w, int weight)
+    {
+        positive(u, w, weight);
+        this.sync();
+        boolean existed = this.g.edges(u).contains(w);
+        boolean was_tight = existed && this.tight(u, w, this.g.int_weight(u, w));
+        this.g.link(u, w, weight);
+        this.version = this.g.version();
+        if (was_tight) --this.n_tight[w];
+
+        this.n_affected = 0;
+        if (this.dist[u] != INF && this.dist[u] + weight < this.dist[w]) {
+            this.decrease(w, this.dist[u] + weight);
+        } else {
+            if (this.tight(u, w, weight)) ++this.n_tight[w];
+            if (this.n_tight[w] == 0) this.increase(w);
+        }
+    }
+
+    // O(affected nodes' edges + affected nodes * lg(N)) to unlink u->w
+    public void
+    unlink (int u, int w)
+    {
+        this.sync();
+        if (!this.g.edges(u).contains(w)) return;
+        boolean was_tight = this.tight(u, w, this.g.int_weight(u, w));
+        this.g.unlink(u, w);
+        this.version = this.g.version();
+
+        this.n_affected = 0;
+        if (was_tight && --this.n_tight[w] == 0) this.increase(w);
+    }
+
+    // w got closer, at distance d: push the improvement downstream
+    private void
+    decrease (int w, int d)
+    {
+        this.dist[w] = d;
+        this.n_tight[w] = 1;
+        this.to_explore.clear();
+        this.to_explore.push(w, d);
+        this.relax();
+    }
+
+    // Dijkstra from whatever is in to_explore, keeping n_tight of the nodes
+    // it lowers (the others keep theirs, plus any new tight in-edge)
+    private void
+    relax ()
+    {
+        while (!this.to_explore.is_empty()) {
+            int u = this.to_explore.poll();
+            ++this.n_affected;
+            for (int w : this.g.edges(u)) {
+                int dist_w = this.dist[u] + this.g.int_weight(u, w);
+                if (dist_w < this.dist[w]) {
+                    this.dist[w] = dist_w;
+                    this.n_tight[w] = 1;
+                    this.to_explore.push(w, dist_w);
+                } else if (dist_w == this.dist[w]) {
+                    ++this.n_tight[w];
+                }
+            }
+        }
+    }
+
+    // w lost its last shortest path: find every node that did too, then
+    // their new distances
+    private void
+    increase (int w)
+    {
+        if (w == this.source || this.dist[w] == INF) return;
+        if (++this.epoch == Integer.MAX_VALUE) {
+            Arrays.fill(this.mark, 0);
+            this.epoch = 1;
+        }
+
+        // Phase 1: collect the affected nodes along the shortest-path DAG,
+        // a node being affected once all its tight in-edges come from
+        // affected nodes (weights are positive, so the DAG has no cycles)
+        int n_affected = 0;
+        this.affected[n_affected++] = w;
+        this.mark[w] = this.epoch;
+        for (int i = 0; i < n_affected; ++i) {
+            int u = this.affected[i];
+            for (int x : this.g.edges(u)) {
+                if (this.mark[x] != this.epoch && this.tight(u, x, this.g.int_weight(u, x))
+                        && --this.n_tight[x] == 0) {
+                    this.mark[x] = this.epoch;
+                    this.affected[n_affected++] = x;
+                }
+            }
+        }
+
+        // Phase 2: seed every affected node from its unaffected in-neighbours
+        this.to_explore.clear();
+        for (int i = 0; i < n_affected; ++i) {
+            int x = this.affected[i];
+            int best = INF;
+            for (int u : this.g.in_edges(x)) {
+                if (this.mark[u] != this.epoch && this.dist[u] != INF) {
+                    best = Math.min(best, this.dist[u] + this.g.int_weight(u, x));
+                }
+            }
+            this.dist[x] = best;
+            if (best != INF) this.to_explore.push(x, best);
+        }
+
+        // Phase 3: Dijkstra among the affected nodes (they all got further,
+        // so none of their edges to unaffected nodes can be tight)
+        while (!this.to_explore.is_empty()) {
+            int u = this.to_explore.poll();
+            for (int x : this.g.edges(u)) {
+                if (this.mark[x] != this.epoch) continue;
+                int dist_x = this.dist[u] + this.g.int_weight(u, x);
+                if (dist_x < this.dist[x]) {
+                    this.dist[x] = dist_x;
+                    this.to_explore.push(x, dist_x);
+                }
+            }
+        }
+
+        // Recount the tight in-edges of the affected nodes
+        for (int i = 0; i < n_affected; ++i) {
+            int x = this.affected[i];
+            int tight = 0;
+            for (int u : this.g.in_edges(x)) {
+                if (this.tight(u, x, this.g.int_weight(u, x))) ++tight;
+            }
+            this.n_tight[x] = tight;
+        }
+        this.n_affected += n_affected;
+    }
+
+    // O(1) to get the distance from the source to v, 1e9 if unreachable
+    public int
+    dist (int v)
+    {
+        this.sync();
+        return this.dist[v];
+    }
+
+    // O(N) to get a copy of every distance
+    public int[]
+    dist ()
+    {
+        this.sync();
+        return this.dist.clone();
+    }
+
+    // O(in-degree of v) to get v's predecessors on its shortest paths,
+    // as int_dijkstra's come_from would list them
+    public List<Integer>
+    come_from (int v)
+    {
+        this.sync();
+        List<Integer> predecessors = new LinkedList<>();
+        if (v == this.source) return predecessors;
+        for (int u : this.g.in_edges(v)) {
+            if (this.tight(u, v, this.g.int_weight(u, v))) predecessors.add(u);
+        }
+        return predecessors;
+    }
+
+    // O(1) to get how many nodes the last change had to revisit
+    public int
+    n_affected ()
+    {
+        return this.n_affected;
+    }
+}
@@ -0,0 +1,334 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * The EdgeListLoader class builds graphs from edge-list text files, one
+ * edge "u w [weight]" per line, tokens split by spaces, tabs or commas.
+ * Blank lines and lines starting with '#' or '%' (comments, as in SNAP and
+ * Matrix Market files) are skipped, so are tokens after the weight. Edges
+ * without a weight weigh 0; the weight column is integral unless some
+ * weight isn't.
+ * The file is cut into chunks on line boundaries that are parsed in
+ * parallel on a ForkJoinPool, each straight from the file's bytes into
+ * primitive buffers. A single counting sort by source then lays the edges
+ * out in CSR form, keeping the file's order within every node.
+ * load_csr() returns that CsrGraph as is (parallel edges included); the
+ * load_*_graph() variants fill a DirectedWeightedGraph from it in one pass
+ * (DirectedWeightedGraph.int_of()), where a repeated edge keeps its last
+ * weight, as with link().
+ * @author Diogo Peralta Cordeiro <diogo@fc.up.pt>
+ */
+public final class
+EdgeListLoader
+{
+    private static final int BUFFER_BYTES = 1 << 20; // also the longest line allowed
+    private static final long MIN_CHUNK_BYTES = 1 << 22;
+
+    private
+    EdgeListLoader ()
+    {
+    }
+
+    /**
+     * The edges parsed from one chunk of the file, in file order.
+     */
+    private static final class
+    Chunk
+    {
+        int[] sources = new int[1024], targets = new int[1024];
+        int[] int_weights = new int[1024];
+        double[] double_weights; // replaces int_weights at the first non-integral weight
+        int size = 0, max_node = -1;
+        final long[] token = new long[1]; // parsing scratch
+
+        void
+        add (int u, int w)
+        {
+            if (this.size == this.sources.length) {
+                int capacity = this.size * 2;
+                this.sources = Arrays.copyOf(this.sources, capacity);
+                this.targets = Arrays.copyOf(this.targets, capacity);
+                if (this.double_weights == null) {
+                    this.int_weights = Arrays.copyOf(this.int_weights, capacity);
+                } else {
+                    this.double_weights = Arrays.copyOf(this.double_weights, capacity);
+                }
+            }
+            this.sources[this.size] = u;
+            this.targets[this.size] = w;
+            this.max_node = Math.max(this.max_node, Math.max(u, w));
+        }
+
+        void
+        add (int u, int w, int weight)
+        {
+            this.add(u, w);
+            if (this.double_weights == null) {
+                this.int_weights[this.size++] = weight;
+            } else {
+                this.double_weights[this.size++] = weight;
+            }
+        }
+
+        void
+        add (int u, int w, double weight)
+        {
+            this.add(u, w);
+            if (this.double_weights == null) {
+                this.double_weights = new double[this.sources.length];
+                for (int i = 0; i < this.size; ++i) {
+                    this.double_weights[i] = this.int_weights[i];
+                }
+                this.int_weights = null;
+            }
+            this.double_weights[this.size++] = weight;
+        }
+    }
+
+    /* Loaders */
+
+    // O(#Bytes/P + N + #Edges), P being the pool's parallelism
+    // The graph has max(n_nodes, largest node in the file + 1) nodes
+    public static CsrGraph
+    load_csr (Path file, int n_nodes, ForkJoinPool pool) throws IOException
+    {
+        List<Chunk> chunks = parse(file, pool);
+
+        long n_edges = 0;
+        boolean integral = true;
+        for (Chunk chunk : chunks) {
+            n_edges += chunk.size;
+            n_nodes = Math.max(n_nodes, chunk.max_node + 1);
+            integral &= chunk.double_weights == null;
+        }
+        if (n_edges > Integer.MAX_VALUE - 8) {
+            throw new IOException(file + " has more edges than a CsrGraph can hold.");
+        }
+
+        // Counting sort by source, stable on the file's order
+        int[] offsets = new int[n_nodes + 1];
+        for (Chunk chunk : chunks) {
+            for (int i = 0; i < chunk.size; ++i) {
+                ++offsets[chunk.sources[i] + 1];
+            }
+        }
+        for (int u = 0; u < n_nodes; ++u) {
+            offsets[u + 1] += offsets[u];
+        }
+        int[] fill = Arrays.copyOf(offsets, n_nodes);
+        int[] targets = new int[(int) n_edges];
+        int[] int_weights = integral ? new int[(int) n_edges] : null;
+        double[] double_weights = integral ? null : new double[(int) n_edges];
+        for (Chunk chunk : chunks) {
+            for (int i = 0; i < chunk.size; ++i) {
+                int e = fill[chunk.sources[i]]++;
+                targets[e] = chunk.targets[i];
+                if (integral) {
+                    int_weights[e] = chunk.int_weights[i];
+                } else if (chunk.double_weights != null) {
+                    double_weights[e] = chunk.double_weights[i];
+                } else {
+                    double_weights[e] = chunk.int_weights[i];
+                }
+            }
+        }
+
+        return new CsrGraph(n_nodes, offsets, targets, new int[][] {int_weights}, new double[][] {double_weights});
+    }
+
+    // O(#Bytes/P + N + #Edges) expected, integral weights only
+    public static DirectedWeightedGraph<Integer>
+    load_int_graph (Path file, int n_nodes, ForkJoinPool pool) throws IOException
+    {
+        CsrGraph csr = load_csr(file, n_nodes, pool);
+        if (!csr.is_integral(0)) {
+            throw new IOException(file + " has non-integral weights, load it with load_double_graph().");
+        }
+        return DirectedWeightedGraph.int_of(csr, 0);
+    }
+    public static DirectedWeightedGraph<Double>
+    load_double_graph (Path file, int n_nodes, ForkJoinPool pool) throws IOException
+    {
+        return DirectedWeightedGraph.double_of(load_csr(file, n_nodes, pool), 0);
+    }
+
+    /* Parsing */
+
+    // Cuts file into chunks on line boundaries and parses them on pool
+    private static List<Chunk>
+    parse (Path file, ForkJoinPool pool) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int n_chunks = (int) Math.max(1, Math.min(size / MIN_CHUNK_BYTES, 4L * pool.getParallelism()));
+            long[] bounds = new long[n_chunks + 1];
+            for (int c = 1; c < n_chunks; ++c) {
+                bounds[c] = Math.max(bounds[c - 1], next_line(channel, size * c / n_chunks));
+            }
+            bounds[n_chunks] = size;
+
+            List<Callable<Chunk>> tasks = new ArrayList<>(n_chunks);
+            for (int c = 0; c < n_chunks; ++c) {
+                long from = bounds[c], to = bounds[c + 1];
+                tasks.add(() -> parse(file, channel, from, to));
+            }
+            List<Chunk> chunks = new ArrayList<>(n_chunks);
+            for (Future<Chunk> chunk : pool.invokeAll(tasks)) {
+                try {
+                    chunks.add(chunk.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while loading " + file + ".", e);
+                } catch (ExecutionException e) {
+                    // The pool wraps what the tasks throw, look for it inside
+                    for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                        if (cause instanceof IOException) throw (IOException) cause;
+                    }
+                    throw new IOException("Failed to load " + file + ".", e.getCause());
+                }
+            }
+            return chunks;
+        }
+    }
+
+    // O(line length) to find where the line holding byte position ends
+    private static long
+    next_line (FileChannel channel, long position) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) return channel.size();
+            for (int i = 0; i < read; ++i) {
+                if (buffer.get(i) == '\n') return position + i + 1;
+            }
+            position += read;
+        }
+    }
+
+    // Parses the lines in bytes [from, to) of the file
+    private static Chunk
+    parse (Path file, FileChannel channel, long from, long to) throws IOException
+    {
+        Chunk chunk = new Chunk();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        byte[] bytes = buffer.array();
+        long position = from; // file position of bytes[0]
+        int start = 0, limit = 0;
+        while (true) {
+            // Find the end of the line starting at start
+            int end = start;
+            while (end < limit && bytes[end] != '\n') ++end;
+            if (end == limit && position + limit < to) {
+                // The line goes on past the buffer: move it to the front, read more
+                if (start == 0 && limit == bytes.length) {
+                    throw new IOException(file + " has a line longer than " + BUFFER_BYTES + " bytes at byte " + position + ".");
+                }
+                System.arraycopy(bytes, start, bytes, 0, limit - start);
+                position += start;
+                limit -= start;
+                start = 0;
+                buffer.clear().position(limit);
+                buffer.limit((int) Math.min(bytes.length, to - position));
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, position + buffer.position()) < 0) break;
+                }
+                limit = buffer.position();
+                continue;
+            }
+            if (start < end) parse_line(file, position + start, bytes, start, end, chunk);
+            if (end == limit) return chunk;
+            start = end + 1;
+        }
+    }
+
+    // Parses bytes[start, end), the line at file position line
+    private static void
+    parse_line (Path file, long line, byte[] bytes, int start, int end, Chunk chunk) throws IOException
+    {
+        int i = skip_separators(bytes, start, end);
+        if (i == end || bytes[i] == '#' || bytes[i] == '%') return;
+
+        long[] token = chunk.token;
+        i = parse_node(bytes, i, end, token);
+        if (i < 0) throw malformed(file, line);
+        int u = (int) token[0];
+        i = skip_separators(bytes, i, end);
+        i = parse_node(bytes, i, end, token);
+        if (i < 0) throw malformed(file, line);
+        int w = (int) token[0];
+
+        i = skip_separators(bytes, i, end);
+        if (i == end) {
+            chunk.add(u, w, 0);
+            return;
+        }
+        int weight_end = i;
+        while (weight_end < end && !separator(bytes[weight_end])) ++weight_end;
+        int j = parse_int(bytes, i, weight_end, token);
+        if (j == weight_end) {
+            chunk.add(u, w, (int) token[0]);
+        } else {
+            try {
+                chunk.add(u, w, Double.parseDouble(new String(bytes, i, weight_end - i, StandardCharsets.US_ASCII)));
+            } catch (NumberFormatException e) {
+                throw malformed(file, line);
+            }
+        }
+    }
+
+    private static boolean
+    separator (byte b)
+    {
+        return b == ' ' || b == '\t' || b == ',' || b == '\r';
+    }
+
+    private static int
+    skip_separators (byte[] bytes, int i, int end)
+    {
+        while (i < end && separator(bytes[i])) ++i;
+        return i;
+    }
+
+    // Parses a node name at bytes[i..], returning where it ends (-1 if none)
+    private static int
+    parse_node (byte[] bytes, int i, int end, long[] value)
+    {
+        int j = parse_int(bytes, i, end, value);
+        if (j == i || value[0] < 0 || (j < end && !separator(bytes[j]))) return -1;
+        return j;
+    }
+
+    // Parses an int at bytes[i..] into value[0], returning where it ends
+    // (i if there's no int there, or it overflows)
+    private static int
+    parse_int (byte[] bytes, int i, int end, long[] value)
+    {
+        int j = i;
+        boolean negative = j < end && bytes[j] == '-';
+        if (negative) ++j;
+        long x = 0;
+        int digits = j;
+        while (j < end && bytes[j] >= '0' && bytes[j] <= '9') {
+            x = x * 10 + (bytes[j++] - '0');
+            if (x > Integer.MAX_VALUE + 1L) return i;
+        }
+        if (j == digits) return i;
+        x = negative ? -x : x;
+        if (x > Integer.MAX_VALUE) return i;
+        value[0] = x;
+        return j;
+    }
+
+    private static IOException
+    malformed (Path file, long line)
+    {
+        return new IOException(file + " has a malformed edge at byte " + line + ".");
+    }
+}
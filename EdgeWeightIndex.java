@@ -0,0 +1,283 @@
+import java.util.*;
+
+/**
+ * The EdgeWeightIndex class maps an edge u->w, packed as the long
+ * (u << 32 | w), to its list of weights, using an open-addressing hash
+ * table with linear probing over primitive arrays.
+ * Edges with a single Integer or Double weight keep it unboxed in the
+ * table itself; every other edge keeps its List of weights.
+ * Each edge also carries an int position, for its owner to find the edge
+ * again elsewhere (DirectedWeightedGraph keeps its place in u's
+ * adjacency-list there).
+ * Lookups, insertions and removals don't allocate, except when the table
+ * grows or when weight() has to box an unboxed weight back into a List.
+ * @author Diogo Peralta Cordeiro <diogo@fc.up.pt>
+ */
+public final class
+EdgeWeightIndex<T>
+{
+    private static final long EMPTY = -1L; // nodes are non-negative, so no edge packs to -1
+    private static final byte INT = 1, DOUBLE = 2, LIST = 3;
+
+    private long[] keys;
+    private byte[] kinds;
+    private long[] bits;      // unboxed weight: the int, or the double's raw bits
+    private Object[] lists;   // boxed weights, only for LIST kind
+    private int[] positions;
+    private int mask, size;
+
+    // O(capacity) to construct the structure
+    public
+    EdgeWeightIndex (int expected_edges)
+    {
+        int capacity = Integer.highestOneBit(Math.min(Math.max(4, expected_edges), 1 << 29) * 2 - 1) << 1;
+        this.allocate(capacity);
+    }
+
+    private void
+    allocate (int capacity)
+    {
+        this.keys = new long[capacity];
+        Arrays.fill(this.keys, EMPTY);
+        this.kinds = new byte[capacity];
+        this.bits = new long[capacity];
+        this.lists = new Object[capacity];
+        this.positions = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    // O(1) to pack an edge into its key
+    public static long
+    key (int u, int w)
+    {
+        return ((long) u << 32) | (w & 0xffffffffL);
+    }
+
+    // O(1), a 64-bit finalizer so that consecutive nodes don't cluster
+    private static int
+    hash (long key)
+    {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    // O(1) expected to find the slot of an edge, -1 if absent
+    private int
+    slot (long key)
+    {
+        for (int i = hash(key) & this.mask; ; i = (i + 1) & this.mask) {
+            if (this.keys[i] == key) return i;
+            if (this.keys[i] == EMPTY) return -1;
+        }
+    }
+
+    // O(1) to get the number of indexed edges
+    public int
+    size ()
+    {
+        return this.size;
+    }
+
+    // O(1) expected to know if an edge is indexed
+    public boolean
+    contains (int u, int w)
+    {
+        return this.slot(key(u, w)) >= 0;
+    }
+
+    // O(1) expected to put or update the weights of an edge, a new one
+    // getting the given position
+    // Returns true if the edge wasn't indexed yet
+    public boolean
+    put (int u, int w, T[] weight, int position)
+    {
+        int size = this.size;
+        this.store(this.claim(u, w, position), weight);
+        return this.size > size;
+    }
+    // The same for a single weight, without boxing it
+    public boolean
+    put (int u, int w, int weight, int position)
+    {
+        int size = this.size, i = this.claim(u, w, position);
+        this.lists[i] = null;
+        this.kinds[i] = INT;
+        this.bits[i] = weight;
+        return this.size > size;
+    }
+    public boolean
+    put (int u, int w, double weight, int position)
+    {
+        int size = this.size, i = this.claim(u, w, position);
+        this.lists[i] = null;
+        this.kinds[i] = DOUBLE;
+        this.bits[i] = Double.doubleToRawLongBits(weight);
+        return this.size > size;
+    }
+
+    // O(1) expected to find the slot of an edge, taking an empty one (with
+    // the given position) if it isn't indexed yet
+    private int
+    claim (int u, int w, int position)
+    {
+        if (2 * (this.size + 1) > this.keys.length) {
+            this.grow();
+        }
+        long key = key(u, w);
+        int i = hash(key) & this.mask;
+        while (this.keys[i] != EMPTY && this.keys[i] != key) {
+            i = (i + 1) & this.mask;
+        }
+        if (this.keys[i] == EMPTY) {
+            this.keys[i] = key;
+            this.positions[i] = position;
+            ++this.size;
+        }
+        return i;
+    }
+
+    private void
+    store (int i, T[] weight)
+    {
+        this.lists[i] = null;
+        if (weight.length == 1 && weight[0] instanceof Integer) {
+            this.kinds[i] = INT;
+            this.bits[i] = (Integer) weight[0];
+        } else if (weight.length == 1 && weight[0] instanceof Double) {
+            this.kinds[i] = DOUBLE;
+            this.bits[i] = Double.doubleToRawLongBits((Double) weight[0]);
+        } else {
+            this.kinds[i] = LIST;
+            this.lists[i] = Collections.unmodifiableList(Arrays.asList(weight));
+        }
+    }
+
+    // O(1) expected to get the weights of an edge, null if absent
+    // The list is read-only (weights change through put()), and single
+    // unboxed weights are boxed on the way out; prefer
+    // int_weight()/double_weight() on hot paths
+    @SuppressWarnings("unchecked")
+    public List<T>
+    get (int u, int w)
+    {
+        int i = this.slot(key(u, w));
+        if (i < 0) return null;
+        switch (this.kinds[i]) {
+            case INT:
+                return Collections.singletonList((T) Integer.valueOf((int) this.bits[i]));
+            case DOUBLE:
+                return Collections.singletonList((T) Double.valueOf(Double.longBitsToDouble(this.bits[i])));
+            default:
+                return (List<T>) this.lists[i];
+        }
+    }
+
+    // O(1) expected to get the first weight of an edge as an int
+    // Throws NoSuchElementException if the edge isn't indexed, and
+    // ClassCastException if its first weight isn't an Integer
+    public int
+    int_weight (int u, int w)
+    {
+        int i = this.slot(key(u, w));
+        if (i < 0) throw new NoSuchElementException("No edge " + u + "-" + w + ".");
+        Object weight;
+        switch (this.kinds[i]) {
+            case INT:
+                return (int) this.bits[i];
+            case DOUBLE:
+                weight = Double.longBitsToDouble(this.bits[i]);
+                break;
+            default:
+                weight = ((List<?>) this.lists[i]).get(0);
+                if (weight instanceof Integer) return (Integer) weight;
+        }
+        throw new ClassCastException("Edge " + u + "-" + w + " has the weight " + weight + ", not an Integer.");
+    }
+
+    // O(1) expected to get the first weight of an edge as a double
+    // Throws NoSuchElementException if the edge isn't indexed
+    public double
+    double_weight (int u, int w)
+    {
+        int i = this.slot(key(u, w));
+        if (i < 0) throw new NoSuchElementException("No edge " + u + "-" + w + ".");
+        switch (this.kinds[i]) {
+            case INT:
+                return (int) this.bits[i];
+            case DOUBLE:
+                return Double.longBitsToDouble(this.bits[i]);
+            default:
+                return ((Number) ((List<?>) this.lists[i]).get(0)).doubleValue();
+        }
+    }
+
+    // O(1) expected to get the position of an edge, -1 if absent
+    public int
+    position (int u, int w)
+    {
+        int i = this.slot(key(u, w));
+        return i < 0 ? -1 : this.positions[i];
+    }
+
+    // O(1) expected to set the position of an indexed edge
+    public void
+    set_position (int u, int w, int position)
+    {
+        this.positions[this.slot(key(u, w))] = position;
+    }
+
+    // O(1) expected to remove an edge, returns whether it was indexed
+    public boolean
+    remove (int u, int w)
+    {
+        int i = this.slot(key(u, w));
+        if (i < 0) return false;
+
+        // Backward shift deletion: pull up the entries of the probe
+        // sequence that would become unreachable with a hole at i
+        for (int j = (i + 1) & this.mask; this.keys[j] != EMPTY; j = (j + 1) & this.mask) {
+            int home = hash(this.keys[j]) & this.mask;
+            if (((j - home) & this.mask) >= ((j - i) & this.mask)) {
+                this.keys[i] = this.keys[j];
+                this.kinds[i] = this.kinds[j];
+                this.bits[i] = this.bits[j];
+                this.lists[i] = this.lists[j];
+                this.positions[i] = this.positions[j];
+                i = j;
+            }
+        }
+        this.keys[i] = EMPTY;
+        this.kinds[i] = 0;
+        this.lists[i] = null;
+        --this.size;
+        return true;
+    }
+
+    // O(capacity) to double the table
+    private void
+    grow ()
+    {
+        long[] old_keys = this.keys;
+        byte[] old_kinds = this.kinds;
+        long[] old_bits = this.bits;
+        Object[] old_lists = this.lists;
+        int[] old_positions = this.positions;
+        this.allocate(old_keys.length * 2);
+        for (int j = 0; j < old_keys.length; ++j) {
+            if (old_keys[j] == EMPTY) continue;
+            int i = hash(old_keys[j]) & this.mask;
+            while (this.keys[i] != EMPTY) {
+                i = (i + 1) & this.mask;
+            }
+            this.keys[i] = old_keys[j];
+            this.kinds[i] = old_kinds[j];
+            this.bits[i] = old_bits[j];
+            this.lists[i] = old_lists[j];
+            this.positions[i] = old_positions[j];
+        }
+    }
+}
@@ -1,90 +1,359 @@
-/* Input */
-// Information about the group
-int n_elements = stdin.nextInt(),
-    start = stdin.nextInt(),
-    budget = stdin.nextInt(),
-// Information about the network
-    n_nodes = stdin.nextInt(),
-    n_edges = stdin.nextInt(),
-    NO_EDGE = 1000000000; // 1e9 to avoid overflow
-// Graph as a adjacency-matrix
-int[][] adj = new int[n_nodes][n_nodes];
-for (int i = 0; i < n_nodes; ++i)
-{
-        Arrays.fill(adj[i], NO_EDGE);
-        adj[i][i] = 0;
-}
-for (int i = 0; i < n_edges; ++i)
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The FloydWarshall class computes all-pairs shortest paths over an
+ * adjacency-matrix of integral weights of any sign, kept as flat row-major
+ * arrays: dist[i*N + j] is the weight of the best path from i to j found
+ * so far (NO_EDGE if none), and path[i*N + j] the node before j on it (i
+ * for a direct edge, -1 if none), so a path is rebuilt back from j.
+ * run() is the blocked Floyd-Warshall: the matrix is cut into TILE*TILE
+ * tiles, and for every diagonal tile kb, in three phases,
+ *  1. the tile (kb, kb) is closed on its own;
+ *  2. the tiles of row kb and column kb are relaxed through it, in parallel;
+ *  3. every other tile (i, j) is relaxed through (i, kb) and (kb, j), in
+ *     parallel,
+ * so that each phase works on a few tiles that fit in cache, instead of
+ * streaming the whole matrix N times, and each runs on a ForkJoinPool,
+ * as a task that halves its range of tiles down to a single one.
+ * A negative cycle shows up as a negative dist(i, i).
+ * Once run, the matrix stays closed under decrease(): inserting an edge or
+ * lowering its weight costs O(N^2) instead of another O(N^3) run, and a
+ * batch of them (say, the edges a looser filter lets back in) costs
+ * O(#changes * N^2). Removing edges or raising weights needs a new run().
+ * @author Diogo Peralta Cordeiro <diogo@fc.up.pt>
+ */
+public final class
+FloydWarshall
 {
-        int source = stdin.nextInt()-1,
-                dest = stdin.nextInt()-1,
-                spots = stdin.nextInt(),
-                cost = stdin.nextInt();
+    public static final int NO_EDGE = MinPlus.NO_EDGE;
+    public static final int TILE = MinPlus.TILE;
 
-        if (spots >= n_elements
-                && cost <= budget) // prevents stupidly expensive edges
-        {
-                adj[source][dest] = cost;
+    public final int n_nodes;
+    public final int[] dist, path; // row-major N*N
+    private int[] row_dist, row_path; // decrease()'s copy of a row
+
+    // O(N^2) to construct the structure, with no edges
+    public
+    FloydWarshall (int n_nodes)
+    {
+        if ((long) n_nodes * n_nodes > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("A " + n_nodes + "^2 matrix doesn't fit in an array.");
+        }
+        this.n_nodes = n_nodes;
+        this.dist = new int[n_nodes * n_nodes];
+        this.path = new int[n_nodes * n_nodes];
+        Arrays.fill(this.dist, NO_EDGE);
+        Arrays.fill(this.path, -1);
+        for (int i = 0; i < n_nodes; ++i) {
+            this.dist[i * n_nodes + i] = 0;
+            this.path[i * n_nodes + i] = i;
+        }
+    }
+
+    // O(N^2 + #Edges) to load a graph's weight column 0, the lightest of
+    // parallel edges winning
+    public static FloydWarshall
+    of (CsrGraph g)
+    {
+        FloydWarshall fw = new FloydWarshall(g.n_nodes);
+        int[] weight = g.int_weights(0);
+        for (int u = 0; u < g.n_nodes; ++u) {
+            for (int e = g.offsets[u]; e < g.offsets[u + 1]; ++e) {
+                int w = g.targets[e];
+                if (u != w && weight[e] < fw.dist(u, w)) fw.link(u, w, weight[e]);
+            }
+        }
+        return fw;
+    }
+    public static FloydWarshall
+    of (DirectedWeightedGraph<?> g)
+    {
+        return of(g.freeze());
+    }
+
+    // O(1) to set the weight of the edge u->w
+    public void
+    link (int u, int w, int weight)
+    {
+        this.dist[u * this.n_nodes + w] = weight;
+        this.path[u * this.n_nodes + w] = u;
+    }
+
+    // O(1) to remove the edge u->w
+    public void
+    unlink (int u, int w)
+    {
+        this.dist[u * this.n_nodes + w] = NO_EDGE;
+        this.path[u * this.n_nodes + w] = -1;
+    }
+
+    // O(1) to get the weight of the best path from i to j, NO_EDGE if none
+    public int
+    dist (int i, int j)
+    {
+        return this.dist[i * this.n_nodes + j];
+    }
+
+    // O(1) to get the node before j on the best path from i to j, -1 if none
+    public int
+    path (int i, int j)
+    {
+        return this.path[i * this.n_nodes + j];
+    }
+
+    // O(length) to get the nodes of the best path from i to j, null if none
+    // (after run(), on a graph without negative cycles)
+    public int[]
+    route (int i, int j)
+    {
+        int[] route = new int[this.n_nodes];
+        int length = this.route(i, j, route);
+        return length < 0 ? null : Arrays.copyOf(route, length);
+    }
+    // O(length) to write the path into route[0 .. length-1], allocating
+    // nothing; -1 if none (route needs room for N nodes)
+    public int
+    route (int i, int j, int[] route)
+    {
+        if (this.dist(i, j) == NO_EDGE) return -1;
+        // Back from j, then turned around
+        int length = 0;
+        route[length++] = j;
+        for (int v = j; v != i; ) {
+            v = this.path(i, v);
+            route[length++] = v;
         }
-        else
+        for (int l = 0, r = length - 1; l < r; ++l, --r) {
+            int v = route[l];
+            route[l] = route[r];
+            route[r] = v;
+        }
+        return length;
+    }
+
+    // O(N) after run() to know if some node lies on a negative cycle
+    public boolean
+    has_negative_cycle ()
+    {
+        for (int i = 0; i < this.n_nodes; ++i) {
+            if (this.dist(i, i) < 0) return true;
+        }
+        return false;
+    }
+
+    // O(N^2) after run() to insert the edge a->b or lower its weight,
+    // keeping every distance and path closed; false if no path got better
+    // (the matrix is left as it was if the edge would close a negative cycle)
+    public boolean
+    decrease (int a, int b, int weight) throws NegativeCycleException
+    {
+        int n = this.n_nodes;
+        if (weight >= this.dist(a, b)) return false;
+        if (this.dist(b, a) != NO_EDGE && this.dist(b, a) + weight < 0) {
+            // b ~> a, then back to b through the new edge
+            throw new NegativeCycleException(this.route(b, a));
+        }
+
+        // Every path i ~> a -> b ~> j may now be the best. Row b and
+        // column a don't change (that would take a negative cycle), so one
+        // copy of row b, with a as the node before b, serves every row i
+        if (this.row_dist == null) {
+            this.row_dist = new int[n];
+            this.row_path = new int[n];
+        }
+        System.arraycopy(this.dist, b * n, this.row_dist, 0, n);
+        System.arraycopy(this.path, b * n, this.row_path, 0, n);
+        this.row_path[b] = a;
+        MinPlus.Kernel kernel = MinPlus.KERNEL;
+        for (int i = 0; i < n; ++i) {
+            int dist_ia = this.dist[i * n + a];
+            if (dist_ia == NO_EDGE) continue;
+            kernel.min_plus(this.dist, this.path, i * n, this.row_dist, this.row_path, 0, dist_ia + weight, n);
+        }
+        return true;
+    }
+    // O(#changes * N^2) to insert or lower the edges us[c]->ws[c], in
+    // order; once there are about N of them, link() and run() are cheaper
+    // (the changes before one closing a negative cycle stay applied)
+    public boolean
+    decrease (int[] us, int[] ws, int[] weights) throws NegativeCycleException
+    {
+        boolean changed = false;
+        for (int c = 0; c < us.length; ++c) {
+            changed |= this.decrease(us[c], ws[c], weights[c]);
+        }
+        return changed;
+    }
+
+    // O(N^3) the textbook triple loop, kept as the reference
+    public void
+    run_naive ()
+    {
+        int n = this.n_nodes;
+        for (int k = 0; k < n; ++k) {
+            relax(this.dist, this.path, n, 0, n, k, k + 1, 0, n);
+        }
+    }
+
+    // O(N^3/P) the blocked algorithm, P being the pool's parallelism
+    public void
+    run (ForkJoinPool pool)
+    {
+        int n = this.n_nodes, n_tiles = (n + TILE - 1) / TILE;
+        int[] dist = this.dist, path = this.path;
+        for (int kb = 0; kb < n_tiles; ++kb) {
+            int k0 = kb * TILE, k1 = Math.min(n, k0 + TILE);
+
+            // Phase 1: the diagonal tile, on its own
+            tile(dist, path, n, k0, k1, k0, k1, k0, k1);
+
+            // Phase 2: row kb and column kb (2 * (n_tiles - 1) tiles)
+            pool.invoke(new Phase(dist, path, n, kb, true, 0, 2 * n_tiles));
+
+            // Phase 3: every other tile, through row kb and column kb
+            pool.invoke(new Phase(dist, path, n, kb, false, 0, n_tiles * n_tiles));
+        }
+    }
+    public void
+    run ()
+    {
+        this.run(ForkJoinPool.commonPool());
+    }
+
+    // Relaxes the tiles [lo, hi) of phase 2 (row tiles at even t, column
+    // tiles at odd t) or phase 3 (tile t of the row-major grid) through
+    // the diagonal tile kb, splitting the range in halves down to one tile
+    private static final class
+    Phase
+            extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] dist, path;
+        private final int n, kb;
+        private final boolean cross; // phase 2, or phase 3
+        private final int lo, hi;
+
+        Phase (int[] dist, int[] path, int n, int kb, boolean cross, int lo, int hi)
         {
-                adj[source][dest] = NO_EDGE;
+            this.dist = dist;
+            this.path = path;
+            this.n = n;
+            this.kb = kb;
+            this.cross = cross;
+            this.lo = lo;
+            this.hi = hi;
         }
-}
 
-// Let's keep a fast access to the path
-int[][] path = new int[n_nodes][n_nodes];
-for (int i = 0; i < n_nodes; ++i)
-{
-        for (int j = 0; j < n_nodes; ++j)
+        @Override
+        protected void
+        compute ()
         {
-                if (adj[i][j] == NO_EDGE)
-                {
-                        path[i][j] = -1;
+            if (this.hi - this.lo > 1) {
+                int mid = (this.lo + this.hi) >>> 1;
+                invokeAll(new Phase(this.dist, this.path, this.n, this.kb, this.cross, this.lo, mid),
+                          new Phase(this.dist, this.path, this.n, this.kb, this.cross, mid, this.hi));
+                return;
+            }
+
+            int n = this.n, n_tiles = (n + TILE - 1) / TILE, t = this.lo;
+            int k0 = this.kb * TILE, k1 = Math.min(n, k0 + TILE);
+            if (this.cross) {
+                int b = t >> 1;
+                if (b == this.kb) return;
+                int b0 = b * TILE, b1 = Math.min(n, b0 + TILE);
+                if ((t & 1) == 0) {
+                    tile(this.dist, this.path, n, k0, k1, b0, b1, k0, k1);
+                } else {
+                    tile(this.dist, this.path, n, b0, b1, k0, k1, k0, k1);
                 }
-                else
-                {
-                        path[i][j] = i;
+            } else {
+                // k can go innermost but one, nothing it reads changes
+                int ib = t / n_tiles, jb = t % n_tiles;
+                if (ib == this.kb || jb == this.kb) return;
+                int i0 = ib * TILE, i1 = Math.min(n, i0 + TILE), j0 = jb * TILE, j1 = Math.min(n, j0 + TILE);
+                for (int i = i0; i < i1; ++i) {
+                    relax(this.dist, this.path, n, i, i + 1, k0, k1, j0, j1);
                 }
+            }
         }
-}
+    }
 
-/* Floyd-Warshall */
-for (int k = 0; k < n_nodes; ++k)
-{
-        for (int i = 0; i < n_nodes; ++i)
+    // Closes rows [i0, i1) x columns [j0, j1) through k in [k0, k1), k
+    // outermost: the tile may read what it writes
+    private static void
+    tile (int[] dist, int[] path, int n, int i0, int i1, int j0, int j1, int k0, int k1)
+    {
+        for (int k = k0; k < k1; ++k) {
+            relax(dist, path, n, i0, i1, k, k + 1, j0, j1);
+        }
+    }
+
+    // dist[i][j] = min(dist[i][j], dist[i][k] + dist[k][j]) for i in
+    // [i0, i1), k in [k0, k1), j in [j0, j1), in that order, the j loop
+    // being a MinPlus kernel (SIMD when it can)
+    private static void
+    relax (int[] dist, int[] path, int n, int i0, int i1, int k0, int k1, int j0, int j1)
+    {
+        MinPlus.Kernel kernel = MinPlus.KERNEL;
+        for (int i = i0; i < i1; ++i) {
+            int row_i = i * n;
+            for (int k = k0; k < k1; ++k) {
+                int dist_ik = dist[row_i + k];
+                if (dist_ik == NO_EDGE) continue;
+                kernel.min_plus(dist, path, row_i + j0, dist, path, k * n + j0, dist_ik, j1 - j0);
+            }
+        }
+    }
+
+    public static void
+    main(String[] args) {
+        Scanner stdin = new Scanner(System.in);
+
+        /* Input */
+        // Information about the group
+        int n_elements = stdin.nextInt(),
+            start = stdin.nextInt(),
+            budget = stdin.nextInt(),
+        // Information about the network
+            n_nodes = stdin.nextInt(),
+            n_edges = stdin.nextInt();
+        // Graph as a adjacency-matrix
+        FloydWarshall fw = new FloydWarshall(n_nodes);
+        for (int i = 0; i < n_edges; ++i)
         {
-                for (int j = 0; j < n_nodes; ++j)
+                int source = stdin.nextInt()-1,
+                        dest = stdin.nextInt()-1,
+                        spots = stdin.nextInt(),
+                        cost = stdin.nextInt();
+
+                if (spots >= n_elements
+                        && cost <= budget) // prevents stupidly expensive edges
                 {
-                        if (adj[i][j] > adj[i][k] + adj[k][j])
-                        {
-                                adj[i][j] = adj[i][k] + adj[k][j];
-                                path[i][j] = path[k][j];
-                        }
+                        fw.link(source, dest, cost);
+                }
+                else
+                {
+                        fw.unlink(source, dest);
                 }
         }
-}
 
-// Path from a given `start` to every other node in the graph
-ArrayDeque<Integer> indexes = new ArrayDeque<>();
-next_route:
-for (int end = 0; end < n_nodes; ++end)
-{
-        indexes.clear();
-        indexes.addFirst(end);
+        /* Floyd-Warshall */
+        fw.run();
 
-        int current_end = end,
-            previous;
-        while (path[start][current_end] != start)
+        // Path from a given `start` to every other node in the graph
+        for (int end = 0; end < n_nodes; ++end)
         {
-                previous = path[start][current_end];
-                if (previous == -1) // No possible path
+                if (fw.dist(start, end) == NO_EDGE) // No possible path
                 {
-                        continue next_route;
+                        continue;
                 }
-                indexes.addFirst(previous);
-                current_end = previous;
+                System.out.println("Get to node " + end + " costs " + fw.dist(start, end) + ".");
         }
-        indexes.addFirst(start);
-        System.out.println("Get to node " + end + " costs " + adj[start][end] + ".");
+
+        // That's all folks
+        stdin.close();
+    }
 }
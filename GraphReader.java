@@ -0,0 +1,29 @@
+/**
+ * The GraphReader interface is read access to a CSR-laid graph of nodes
+ * named 0 through N-1, whatever its storage: CsrGraph (heap arrays),
+ * MappedGraph (a memory-mapped file) or OffHeapGraph (native memory).
+ * Edge indices are longs, so storages that aren't bound by Java's array
+ * limits can hold more than 2^31 edges; the out-edges of node u are
+ * first_edge(u) .. first_edge(u+1)-1.
+ * Weights are read from weight column 0, the one the algorithms use.
+ * GraphSearch runs the same algorithms over any of them.
+ * @author Diogo Peralta Cordeiro <diogo@fc.up.pt>
+ */
+public interface
+GraphReader
+{
+    int n_nodes ();
+
+    long n_edges ();
+
+    // First out-edge of u, for 0 <= u <= N (first_edge(N) = #Edges)
+    long first_edge (int u);
+
+    // Node edge e points to
+    int target (long e);
+
+    // Weight of edge e, ClassCastException if it isn't integral
+    int int_weight (long e);
+
+    double double_weight (long e);
+}
@@ -0,0 +1,245 @@
+import java.util.*;
+
+/**
+ * The GraphSearch class runs the graph algorithms over any GraphReader,
+ * so a graph gets them whether it lives on the heap, in a mapped file or
+ * in native memory. CsrGraph's methods of the same name (and
+ * ConcurrentGraph.Snapshot's int_dijkstra) run these; bfs gives hop counts
+ * and one predecessor per node.
+ * @author Diogo Peralta Cordeiro <diogo@fc.up.pt>
+ */
+public final class
+GraphSearch
+{
+    private static final int INF = 1000000000; // 1e9 to avoid overflow
+
+    private
+    GraphSearch ()
+    {
+    }
+
+    // O(#Edges + N)
+    public static List<Object>
+    bfs(GraphReader g, int s) {
+        /* Set Data Structures */
+        int n_nodes = g.n_nodes();
+        int[] dist = new int[n_nodes];
+        int[] come_from = new int[n_nodes];
+        Arrays.fill(dist, INF);
+        Arrays.fill(come_from, -1);
+        int[] to_explore = new int[n_nodes]; // Queue, every node enters once
+        int head = 0, tail = 0;
+
+        dist[s] = 0;
+        to_explore[tail++] = s;
+        while (head < tail) {
+            int u = to_explore[head++];
+            for (long e = g.first_edge(u), end = g.first_edge(u + 1); e < end; ++e) {
+                int w = g.target(e);
+                if (dist[w] == INF) {
+                    dist[w] = dist[u] + 1;
+                    come_from[w] = u;
+                    to_explore[tail++] = w;
+                }
+            }
+        }
+
+        // That's all folks.
+        return Arrays.asList(dist, come_from);
+    }
+
+    // O(#Edges + N*lg(N))
+    public static List<Object>
+    int_dijkstra(GraphReader g, int s) {
+        /* Set Data Structures */
+        int n_nodes = g.n_nodes();
+        int[] dist = new int[n_nodes];
+        List<List<Integer>> come_from = new ArrayList<>(n_nodes);
+        for (int i = 0; i < n_nodes; ++i) {
+            dist[i] = INF;
+            come_from.add(i, new LinkedList<>());
+        }
+        // Min-heap of nodes by distance, decreased in place
+        IndexedDaryHeap to_explore = new IndexedDaryHeap(n_nodes);
+
+        // Let's find distances from s
+        dist[s] = 0;
+        to_explore.push(s, 0);
+
+        // Dijkstra's Algorithm
+        while (!to_explore.is_empty()) {
+            int u = to_explore.poll();
+            // Assert: u.distance is the true shortest distance from s to u
+            // Assert: u is never put back into to_explore
+            for (long e = g.first_edge(u), end = g.first_edge(u + 1); e < end; ++e) {
+                int w = g.target(e);
+                int dist_w = dist[u] + g.int_weight(e);
+                if (dist_w < dist[w]) {
+                    come_from.get(w).clear();
+                    come_from.get(w).add(u);
+                    // Decrease key with new distance
+                    dist[w] = dist_w;
+                    to_explore.push(w, dist[w]);
+                } else if (dist_w == dist[w]) {
+                    come_from.get(w).add(u);
+                }
+            }
+        }
+
+        // That's all folks.
+        return Arrays.asList(dist, come_from);
+    }
+    public static List<Object>
+    double_dijkstra(GraphReader g, int s) {
+        /* Set Data Structures */
+        int n_nodes = g.n_nodes();
+        double[] dist = new double[n_nodes];
+        List<List<Integer>> come_from = new ArrayList<>(n_nodes);
+        for (int i = 0; i < n_nodes; ++i) {
+            dist[i] = INF;
+            come_from.add(i, new LinkedList<>());
+        }
+        // Min-heap of nodes by distance, decreased in place
+        IndexedDaryHeap to_explore = new IndexedDaryHeap(n_nodes);
+
+        // Let's find distances from s
+        dist[s] = 0;
+        to_explore.push(s, IndexedDaryHeap.double_key(0));
+
+        // Dijkstra's Algorithm
+        while (!to_explore.is_empty()) {
+            int u = to_explore.poll();
+            // Assert: u.distance is the true shortest distance from s to u
+            // Assert: u is never put back into to_explore
+            for (long e = g.first_edge(u), end = g.first_edge(u + 1); e < end; ++e) {
+                int w = g.target(e);
+                double dist_w = dist[u] + g.double_weight(e);
+                if (Double.compare(dist_w, dist[w]) < 0) {
+                    come_from.get(w).clear();
+                    come_from.get(w).add(u);
+                    // Decrease key with new distance
+                    dist[w] = dist_w;
+                    to_explore.push(w, IndexedDaryHeap.double_key(dist[w]));
+                } else if (Double.compare(dist_w, dist[w]) == 0) {
+                    come_from.get(w).add(u);
+                }
+            }
+        }
+
+        // That's all folks.
+        return Arrays.asList(dist, come_from);
+    }
+
+    // O(#Edges + N*lg(N))
+    public static int[]
+    int_prim(GraphReader g) {
+        /* Set Data Structures */
+        int n_nodes = g.n_nodes();
+        int[] dist = new int[n_nodes];
+        boolean[] in_tree = new boolean[n_nodes];
+        int[] come_from = new int[n_nodes];
+        Arrays.fill(dist, INF);
+        IndexedDaryHeap to_explore = new IndexedDaryHeap(n_nodes);
+
+        // Let's find distances from s
+        int s = 0;
+        dist[s] = 0;
+        to_explore.push(s, 0);
+
+        while (!to_explore.is_empty()) {
+            int u = to_explore.poll();
+            in_tree[u] = true;
+            // Let t be the graph made of nodes with in_tree = true,
+            // and edges {(w - come_from[w]), for w in g.nodes excluding s}
+            // Assert: t is part of an MST for g
+            for (long e = g.first_edge(u), end = g.first_edge(u + 1); e < end; ++e) {
+                int w = g.target(e);
+                int edge_cost = g.int_weight(e);
+                if (!in_tree[w] && edge_cost < dist[w]) {
+                    come_from[w] = u;
+                    dist[w] = edge_cost;
+                    to_explore.push(w, dist[w]);
+                }
+            }
+        }
+
+        // That's all folks.
+        return come_from;
+    }
+    public static int[]
+    double_prim(GraphReader g) {
+        /* Set Data Structures */
+        int n_nodes = g.n_nodes();
+        double[] dist = new double[n_nodes];
+        boolean[] in_tree = new boolean[n_nodes];
+        int[] come_from = new int[n_nodes];
+        Arrays.fill(dist, INF);
+        IndexedDaryHeap to_explore = new IndexedDaryHeap(n_nodes);
+
+        // Let's find distances from s
+        int s = 0;
+        dist[s] = 0;
+        to_explore.push(s, IndexedDaryHeap.double_key(0));
+
+        while (!to_explore.is_empty()) {
+            int u = to_explore.poll();
+            in_tree[u] = true;
+            // Let t be the graph made of nodes with in_tree = true,
+            // and edges {(w - come_from[w]), for w in g.nodes excluding s}
+            // Assert: t is part of an MST for g
+            for (long e = g.first_edge(u), end = g.first_edge(u + 1); e < end; ++e) {
+                int w = g.target(e);
+                double edge_cost = g.double_weight(e);
+                if (!in_tree[w] && Double.compare(edge_cost, dist[w]) < 0) {
+                    come_from[w] = u;
+                    dist[w] = edge_cost;
+                    to_explore.push(w, IndexedDaryHeap.double_key(dist[w]));
+                }
+            }
+        }
+
+        // That's all folks.
+        return come_from;
+    }
+
+    // O(k*#Edges), k <= N being the #edges of the longest shortest path
+    public static int[]
+    int_bellman_ford (GraphReader g, int s) throws NegativeCycleException {
+        int n_nodes = g.n_nodes();
+        int[] min_weight = new int[n_nodes];
+        int[] come_from = new int[n_nodes];
+        // best estimate so far of minimum weight from s to another vertex
+        Arrays.fill(min_weight, INF);
+        Arrays.fill(come_from, -1);
+        min_weight[s] = 0;
+
+        // Repeat, until a pass changes nothing
+        for (int i = 0; i < n_nodes; ++i) {
+            int last_lowered = -1;
+            // relax all the edges
+            for (int u = 0; u < n_nodes; ++u) {
+                for (long e = g.first_edge(u), end = g.first_edge(u + 1); e < end; ++e) {
+                    int w = g.target(e);
+                    int edge_cost = g.int_weight(e);
+                    if (min_weight[u] + edge_cost < min_weight[w]) {
+                        min_weight[w] = min_weight[u] + edge_cost;
+                        come_from[w] = u;
+                        last_lowered = w;
+                    }
+                    // Assert: v.min_weight >= true minimum weight from s to v
+                }
+            }
+            if (last_lowered < 0) {
+                // That's all folks.
+                return min_weight;
+            }
+            if (i == n_nodes - 1) {
+                // A shortest path never takes N passes
+                throw new NegativeCycleException(BellmanFord.find_cycle(come_from, last_lowered));
+            }
+        }
+
+        // That's all folks.
+        return min_weight;
+    }
+}
@@ -0,0 +1,203 @@
+import java.util.*;
+
+/**
+ * The IndexedDaryHeap class is a min-priority queue of nodes named 0 through
+ * N-1, each present at most once, with long priorities.
+ * It is a d-ary heap over primitive arrays plus a node -> position index,
+ * so that a node's priority can be decreased in place instead of being
+ * removed and re-added. Ties are broken by node index, which gives the
+ * same extraction order as a TreeSet compared by priority, then by index.
+ * int priorities are used as they are; double priorities are mapped to
+ * order-preserving longs by double_key() and back by key_double().
+ * @author Diogo Peralta Cordeiro <diogo@fc.up.pt>
+ */
+public final class
+IndexedDaryHeap
+{
+    public static final int DEFAULT_ARITY = 4;
+
+    private final int arity;
+    private final int[] heap;  // position -> node
+    private final long[] keys; // position -> priority of that node
+    private final int[] pos;   // node -> position, -1 if not queued
+    private int size;
+
+    // O(n) to construct the structure
+    public
+    IndexedDaryHeap (int n_nodes, int arity)
+    {
+        if (arity < 2) {
+            throw new IllegalArgumentException("A heap needs an arity of at least 2.");
+        }
+        this.arity = arity;
+        this.heap = new int[n_nodes];
+        this.keys = new long[n_nodes];
+        this.pos = new int[n_nodes];
+        Arrays.fill(this.pos, -1);
+        this.size = 0;
+    }
+    public
+    IndexedDaryHeap (int n_nodes)
+    {
+        this(n_nodes, DEFAULT_ARITY);
+    }
+
+    // O(1) to map a double to a long with the same ordering (NaNs last)
+    public static long
+    double_key (double d)
+    {
+        long bits = Double.doubleToLongBits(d);
+        return bits ^ ((bits >> 63) & 0x7fffffffffffffffL);
+    }
+    public static double
+    key_double (long key)
+    {
+        return Double.longBitsToDouble(key ^ ((key >> 63) & 0x7fffffffffffffffL));
+    }
+
+    public int
+    size ()
+    {
+        return this.size;
+    }
+
+    public boolean
+    is_empty ()
+    {
+        return this.size == 0;
+    }
+
+    // O(1) to know if a node is queued
+    public boolean
+    contains (int u)
+    {
+        return this.pos[u] >= 0;
+    }
+
+    // O(1) to get the priority of a queued node
+    public long
+    key (int u)
+    {
+        return this.keys[this.pos[u]];
+    }
+
+    // O(1) to get the node with the least priority
+    public int
+    peek ()
+    {
+        if (this.size == 0) throw new NoSuchElementException();
+        return this.heap[0];
+    }
+    public long
+    peek_key ()
+    {
+        if (this.size == 0) throw new NoSuchElementException();
+        return this.keys[0];
+    }
+
+    // O(lg_d(n)) to queue a node, or to change its priority if it is queued
+    public void
+    push (int u, long key)
+    {
+        int i = this.pos[u];
+        if (i < 0) {
+            i = this.size++;
+            this.place(i, u, key);
+            this.sift_up(i);
+        } else if (key <= this.keys[i]) {
+            this.keys[i] = key;
+            this.sift_up(i);
+        } else {
+            this.keys[i] = key;
+            this.sift_down(i);
+        }
+    }
+
+    // O(lg_d(n)) to lower the priority of a queued node
+    public void
+    decrease_key (int u, long key)
+    {
+        int i = this.pos[u];
+        if (i < 0) throw new NoSuchElementException("Node " + u + " is not queued.");
+        if (key > this.keys[i]) throw new IllegalArgumentException("New key is greater than the current one.");
+        this.keys[i] = key;
+        this.sift_up(i);
+    }
+
+    // O(d*lg_d(n)) to remove and return the node with the least priority
+    public int
+    poll ()
+    {
+        if (this.size == 0) throw new NoSuchElementException();
+        int u = this.heap[0];
+        this.pos[u] = -1;
+        if (--this.size > 0) {
+            this.place(0, this.heap[this.size], this.keys[this.size]);
+            this.sift_down(0);
+        }
+        return u;
+    }
+
+    // O(size) to empty the queue, keeping it ready to be reused
+    public void
+    clear ()
+    {
+        for (int i = 0; i < this.size; ++i) {
+            this.pos[this.heap[i]] = -1;
+        }
+        this.size = 0;
+    }
+
+    /* Heap internals */
+
+    private void
+    place (int i, int u, long key)
+    {
+        this.heap[i] = u;
+        this.keys[i] = key;
+        this.pos[u] = i;
+    }
+
+    // Compare by priority, then by index
+    private boolean
+    less (long key_a, int a, long key_b, int b)
+    {
+        return key_a < key_b || (key_a == key_b && a < b);
+    }
+
+    private void
+    sift_up (int i)
+    {
+        int u = this.heap[i];
+        long key = this.keys[i];
+        while (i > 0) {
+            int parent = (i - 1) / this.arity;
+            if (!this.less(key, u, this.keys[parent], this.heap[parent])) break;
+            this.place(i, this.heap[parent], this.keys[parent]);
+            i = parent;
+        }
+        this.place(i, u, key);
+    }
+
+    private void
+    sift_down (int i)
+    {
+        int u = this.heap[i];
+        long key = this.keys[i];
+        while (true) {
+            int first = i * this.arity + 1;
+            if (first >= this.size) break;
+            int last = Math.min(first + this.arity, this.size);
+            int best = first;
+            for (int c = first + 1; c < last; ++c) {
+                if (this.less(this.keys[c], this.heap[c], this.keys[best], this.heap[best])) {
+                    best = c;
+                }
+            }
+            if (!this.less(this.keys[best], this.heap[best], key, u)) break;
+            this.place(i, this.heap[best], this.keys[best]);
+            i = best;
+        }
+        this.place(i, u, key);
+    }
+}
@@ -1,34 +1,167 @@
-// You have a graph G (original graph), with edge weight values v(u->w)
-// You must call this function with a helper graph with a special node
-// indexed 0 and zero-weight edges 0->w for all vertices w
-// Time complexity: O(N^2 * lg N + N*#Edges)
-// Returns APSP indexed as expected in the original graph (i.e.,
-// shifting everything -1 to exclude the special node of the helper graph)
-private static int[][]
-int_johnson (DirectedWeightedGraph<Integer> hg) throws Exception
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * The Johnson class computes all-pairs shortest paths of a sparse CsrGraph
+ * with integral weights of any sign (weight column 0), but no negative
+ * cycle, using Johnson's algorithm:
+ *  - Bellman-Ford from a helper node linked to every node by a zero-weight
+ *    edge gives a potential h(u) to each node;
+ *  - every edge u->w is reweighted to c(u->w) + h(u) - h(w), which is never
+ *    negative, and shortest paths stay the same;
+ *  - one Dijkstra per source over the reweighted graph gives the row of
+ *    that source, d(u, w) = d'(u, w) - h(u) + h(w).
+ * The rows are computed in parallel on any Executor, each worker reusing a
+ * ShortestPathWorkspace, and land in a flat row-major matrix (row u holds
+ * the distances from u, 1e9 if unreachable) or, when N^2 doesn't fit in
+ * memory, are streamed one by one to a sink.
+ * @author Diogo Peralta Cordeiro <diogo@fc.up.pt>
+ */
+public final class
+Johnson
 {
-    // Finish the helper graph by running Bellman-Ford on it
-    int[] h = hg.int_bellman_ford(0);
+    private static final int INF = 1000000000; // 1e9 to avoid overflow
+
+    public final int n_nodes;
+    private final int[] h;              // potentials
+    private final CsrGraph reweighted;  // non-negative weights
+
+    // O(N*#Edges) worst case for the potentials, O(#Edges) to reweight
+    public
+    Johnson (CsrGraph g) throws NegativeCycleException
+    {
+        this.n_nodes = g.n_nodes;
+        int[] weight = g.int_weights(0);
 
-    // Generate the tweaked graph
-    for (int u = 1; u < hg.n_nodes; ++u) {
-        hg.edges(u).forEach((w) -> {
-            int edge_cost = (int) hg.weight(u, w).get(0);
-            // Update edge's cost
-            hg.link(u, w, edge_cost + h[u] - h[w]);
+        // Helper graph: g plus node N, with a zero-weight edge to every node
+        int[] offsets = Arrays.copyOf(g.offsets, g.n_nodes + 2);
+        offsets[g.n_nodes + 1] = g.n_edges + g.n_nodes;
+        int[] targets = Arrays.copyOf(g.targets, g.n_edges + g.n_nodes);
+        int[] helper_weight = Arrays.copyOf(weight, g.n_edges + g.n_nodes);
+        for (int u = 0; u < g.n_nodes; ++u) {
+            targets[g.n_edges + u] = u;
         }
+        CsrGraph helper = new CsrGraph(g.n_nodes + 1, offsets, targets, new int[][] {helper_weight}, new double[1][]);
+        this.h = new BellmanFord(helper).int_spfa(g.n_nodes);
+
+        // Reweighted graph, sharing g's structure
+        int[] tweaked = new int[g.n_edges];
+        for (int u = 0; u < g.n_nodes; ++u) {
+            for (int e = g.offsets[u]; e < g.offsets[u + 1]; ++e) {
+                tweaked[e] = weight[e] + this.h[u] - this.h[g.targets[e]];
+            }
+        }
+        this.reweighted = new CsrGraph(g.n_nodes, g.offsets, g.targets, new int[][] {tweaked}, new double[1][]);
     }
 
-    int [][] D = new int[hg.n_nodes-1][hg.n_nodes-1];
+    // O(N) to turn the workspace's reweighted row into the real one
+    private void
+    row (ShortestPathWorkspace ws, int[] row, int offset)
+    {
+        int u = ws.source();
+        for (int w = 0; w < this.n_nodes; ++w) {
+            int d = ws.dist(w);
+            row[offset + w] = d == INF ? INF : d - this.h[u] + this.h[w];
+        }
+    }
 
-    // Dijkstra on the tweaked graph
-    for (int u = 0; u < g.n_nodes-1; ++u) {
-        for (int w = 0; w < g.n_nodes-1; ++w) {
-            int[] delta = hg.int_dijkstra(u+1);
-            D[u][w] = delta[w+1] + h[w+1] - h[u+1];
+    // Runs compute(workspace, source) for every source, split into
+    // parallelism chunks on executor, and waits for all of them
+    private void
+    for_each_source (Executor executor, int parallelism, ObjIntConsumer<ShortestPathWorkspace> compute)
+    {
+        int n_chunks = Math.max(1, Math.min(parallelism, this.n_nodes));
+        CompletableFuture<?>[] chunks = new CompletableFuture<?>[n_chunks];
+        for (int c = 0; c < n_chunks; ++c) {
+            int lo = (int) ((long) this.n_nodes * c / n_chunks), hi = (int) ((long) this.n_nodes * (c + 1) / n_chunks);
+            chunks[c] = CompletableFuture.runAsync(() -> {
+                ShortestPathWorkspace ws = new ShortestPathWorkspace(this.reweighted);
+                for (int u = lo; u < hi; ++u) {
+                    ws.run(u);
+                    compute.accept(ws, u);
+                }
+            }, executor);
         }
+        CompletableFuture.allOf(chunks).join();
     }
 
-    // Johnson drops mic.
-    return D;
+    // O(N*#Edges + N^2*lg(N)) work to get the N*N row-major matrix
+    public int[]
+    int_matrix(Executor executor, int parallelism) {
+        if ((long) this.n_nodes * this.n_nodes > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("A " + this.n_nodes + "^2 matrix doesn't fit in an array, stream the rows instead.");
+        }
+        int[] D = new int[this.n_nodes * this.n_nodes];
+        this.for_each_source(executor, parallelism, (ws, u) -> this.row(ws, D, u * this.n_nodes));
+        return D;
+    }
+    public long[]
+    long_matrix(Executor executor, int parallelism) {
+        if ((long) this.n_nodes * this.n_nodes > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("A " + this.n_nodes + "^2 matrix doesn't fit in an array, stream the rows instead.");
+        }
+        long[] D = new long[this.n_nodes * this.n_nodes];
+        this.for_each_source(executor, parallelism, (ws, u) -> {
+            int offset = u * this.n_nodes;
+            for (int w = 0; w < this.n_nodes; ++w) {
+                int d = ws.dist(w);
+                D[offset + w] = d == INF ? INF : (long) d - this.h[u] + this.h[w];
+            }
+        });
+        return D;
+    }
+
+    // O(N*#Edges + N^2*lg(N)) work, O(N) memory per worker: sink gets every
+    // (row, u) pair, concurrently from up to parallelism threads, and must
+    // be done with row when it returns (the buffer is reused)
+    public void
+    stream_rows(Executor executor, int parallelism, ObjIntConsumer<int[]> sink) {
+        ThreadLocal<int[]> buffer = ThreadLocal.withInitial(() -> new int[this.n_nodes]);
+        this.for_each_source(executor, parallelism, (ws, u) -> {
+            int[] row = buffer.get();
+            this.row(ws, row, 0);
+            sink.accept(row, u);
+        });
+    }
+
+    // You have a graph G (original graph), with edge weight values v(u->w)
+    // You must call this function with a helper graph with a special node
+    // indexed 0 and zero-weight edges 0->w for all vertices w
+    // Time complexity: O(N^2 * lg N + N*#Edges)
+    // Returns APSP indexed as expected in the original graph (i.e.,
+    // shifting everything -1 to exclude the special node of the helper graph)
+    // hg is left as it was
+    public static int[][]
+    int_johnson (DirectedWeightedGraph<Integer> hg) throws NegativeCycleException
+    {
+        // Finish the helper graph by running Bellman-Ford on it
+        CsrGraph g = hg.freeze();
+        int[] h = new BellmanFord(g).int_passes(0);
+
+        // Generate the tweaked graph
+        int[] weight = g.int_weights(0), tweaked = new int[g.n_edges];
+        for (int u = 0; u < g.n_nodes; ++u) {
+            for (int e = g.offsets[u]; e < g.offsets[u + 1]; ++e) {
+                tweaked[e] = weight[e] + h[u] - h[g.targets[e]];
+            }
+        }
+        ShortestPathWorkspace ws = new ShortestPathWorkspace(
+                new CsrGraph(g.n_nodes, g.offsets, g.targets, new int[][] {tweaked}, new double[1][]));
+
+        int [][] D = new int[hg.n_nodes-1][hg.n_nodes-1];
+
+        // Dijkstra on the tweaked graph, once per source
+        for (int u = 0; u < hg.n_nodes-1; ++u) {
+            ws.run(u+1);
+            for (int w = 0; w < hg.n_nodes-1; ++w) {
+                int delta = ws.dist(w+1);
+                D[u][w] = delta == INF ? INF : delta + h[w+1] - h[u+1];
+            }
+        }
+
+        // Johnson drops mic.
+        return D;
+    }
 }
@@ -0,0 +1,308 @@
+import java.io.IOException;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * The MappedGraph class reads a CsrGraph saved in a binary file straight
+ * from a memory mapping of that file: opening it costs O(1) whatever the
+ * graph's size, pages are only read from disk when first touched, and every
+ * JVM mapping the same file shares them through the page cache.
+ * The file, written by write(), is little-endian with 8-byte aligned
+ * sections:
+ *  - header: magic "CSRG", format version, N, #columns (ints), #Edges (long),
+ *    then one type byte per weight column (0 for int, 1 for double);
+ *  - offsets: N+1 ints;
+ *  - targets: #Edges ints;
+ *  - one section per weight column: #Edges ints or doubles.
+ * Sections are mapped separately, so each must stay under 2GB.
+ * As a GraphReader, the graph is searched by GraphSearch directly over
+ * the mapped buffers, with the same results as CsrGraph's; to_csr() copies
+ * the graph to the heap when many passes over it make the copy worth it.
+ * @author Diogo Peralta Cordeiro <diogo@fc.up.pt>
+ */
+public final class
+MappedGraph implements GraphReader
+{
+    private static final int MAGIC = 0x43535247; // "CSRG"
+    private static final int FORMAT_VERSION = 1;
+    private static final byte INT_COLUMN = 0, DOUBLE_COLUMN = 1;
+    private static final int HEADER_BYTES = 24;
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    public final int n_nodes, n_edges; // N, #Edges, respectively
+    private final IntBuffer offsets, targets;
+    private final IntBuffer[] int_weights;       // [column], null if the column isn't integral
+    private final DoubleBuffer[] double_weights; // [column], null if the column is integral
+
+    private
+    MappedGraph (int n_nodes, int n_edges, IntBuffer offsets, IntBuffer targets,
+                 IntBuffer[] int_weights, DoubleBuffer[] double_weights)
+    {
+        this.n_nodes = n_nodes;
+        this.n_edges = n_edges;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.int_weights = int_weights;
+        this.double_weights = double_weights;
+    }
+
+    // Rounds a file position up to the next section boundary
+    private static long
+    align (long position)
+    {
+        return (position + 7) & ~7L;
+    }
+
+    /* Writer */
+
+    // O(N + #Edges) to save a graph, overwriting file
+    public static void
+    write (CsrGraph g, Path file) throws IOException
+    {
+        int n_columns = g.n_columns();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(g.n_nodes).putInt(n_columns).putLong(g.n_edges);
+            for (int c = 0; c < n_columns; ++c) {
+                buffer.put(g.is_integral(c) ? INT_COLUMN : DOUBLE_COLUMN);
+            }
+            pad(buffer);
+            write_ints(channel, buffer, g.offsets, g.n_nodes + 1);
+            write_ints(channel, buffer, g.targets, g.n_edges);
+            for (int c = 0; c < n_columns; ++c) {
+                if (g.is_integral(c)) {
+                    write_ints(channel, buffer, g.int_weights(c), g.n_edges);
+                } else {
+                    write_doubles(channel, buffer, g.double_weights(c), g.n_edges);
+                }
+            }
+            flush(channel, buffer);
+        }
+    }
+    public static void
+    write (DirectedWeightedGraph<?> g, Path file) throws IOException
+    {
+        write(g.freeze(), file);
+    }
+    public static void
+    write (DirectedMultiGraph g, Path file) throws IOException
+    {
+        write(g.freeze(), file);
+    }
+
+    private static void
+    write_ints (FileChannel channel, ByteBuffer buffer, int[] values, int length) throws IOException
+    {
+        for (int i = 0; i < length; ) {
+            if (buffer.remaining() < Integer.BYTES) flush(channel, buffer);
+            int n = Math.min(length - i, buffer.remaining() / Integer.BYTES);
+            buffer.asIntBuffer().put(values, i, n);
+            buffer.position(buffer.position() + n * Integer.BYTES);
+            i += n;
+        }
+        pad(buffer);
+    }
+
+    private static void
+    write_doubles (FileChannel channel, ByteBuffer buffer, double[] values, int length) throws IOException
+    {
+        for (int i = 0; i < length; ) {
+            if (buffer.remaining() < Double.BYTES) flush(channel, buffer);
+            int n = Math.min(length - i, buffer.remaining() / Double.BYTES);
+            buffer.asDoubleBuffer().put(values, i, n);
+            buffer.position(buffer.position() + n * Double.BYTES);
+            i += n;
+        }
+        pad(buffer);
+    }
+
+    // Zero-fills up to the next section boundary (the buffer is always
+    // flushed at multiples of 8 bytes, so its position tells)
+    private static void
+    pad (ByteBuffer buffer)
+    {
+        while ((buffer.position() & 7) != 0) buffer.put((byte) 0);
+    }
+
+    private static void
+    flush (FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    /* Reader */
+
+    // O(1) to map a file saved by write(); the mapping outlives the channel
+    public static MappedGraph
+    open (Path file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = map(channel, 0, Math.min(channel.size(), HEADER_BYTES));
+            if (header.limit() < HEADER_BYTES || header.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a graph file.");
+            }
+            if (header.getInt(4) != FORMAT_VERSION) {
+                throw new IOException(file + " has unknown format version " + header.getInt(4) + ".");
+            }
+            int n_nodes = header.getInt(8), n_columns = header.getInt(12);
+            long n_edges = header.getLong(16);
+            if (n_edges > Integer.MAX_VALUE) {
+                throw new IOException(file + " has more edges than a CsrGraph can hold.");
+            }
+            ByteBuffer types = map(channel, HEADER_BYTES, n_columns);
+
+            long position = align(HEADER_BYTES + n_columns);
+            IntBuffer offsets = map(channel, position, 4L * (n_nodes + 1)).asIntBuffer();
+            position = align(position + 4L * (n_nodes + 1));
+            IntBuffer targets = map(channel, position, 4L * n_edges).asIntBuffer();
+            position = align(position + 4L * n_edges);
+            IntBuffer[] int_weights = new IntBuffer[n_columns];
+            DoubleBuffer[] double_weights = new DoubleBuffer[n_columns];
+            for (int c = 0; c < n_columns; ++c) {
+                if (types.get(c) == INT_COLUMN) {
+                    int_weights[c] = map(channel, position, 4L * n_edges).asIntBuffer();
+                    position = align(position + 4L * n_edges);
+                } else {
+                    double_weights[c] = map(channel, position, 8L * n_edges).asDoubleBuffer();
+                    position = align(position + 8L * n_edges);
+                }
+            }
+            return new MappedGraph(n_nodes, (int) n_edges, offsets, targets, int_weights, double_weights);
+        }
+    }
+
+    private static ByteBuffer
+    map (FileChannel channel, long position, long size) throws IOException
+    {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("A " + size + " bytes section can't be mapped at once.");
+        }
+        if (position + size > channel.size()) {
+            throw new IOException("Truncated graph file.");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // O(1) to get the number of weight columns
+    public int
+    n_columns ()
+    {
+        return this.int_weights.length;
+    }
+
+    // O(1) to get the out-degree of a node
+    public int
+    degree (int u)
+    {
+        return this.offsets.get(u + 1) - this.offsets.get(u);
+    }
+
+    /* GraphReader */
+
+    public int
+    n_nodes ()
+    {
+        return this.n_nodes;
+    }
+
+    public long
+    n_edges ()
+    {
+        return this.n_edges;
+    }
+
+    public long
+    first_edge (int u)
+    {
+        return this.offsets.get(u);
+    }
+
+    public int
+    target (long e)
+    {
+        return this.targets.get((int) e);
+    }
+
+    public int
+    int_weight (long e)
+    {
+        if (this.int_weights[0] == null) {
+            throw new ClassCastException("Weight column 0 is not integral.");
+        }
+        return this.int_weights[0].get((int) e);
+    }
+
+    public double
+    double_weight (long e)
+    {
+        if (this.int_weights[0] != null) {
+            return this.int_weights[0].get((int) e);
+        }
+        return this.double_weights[0].get((int) e);
+    }
+
+    // O(1) to get an integral weight column, indexed by edge
+    public IntBuffer
+    int_weights (int c)
+    {
+        if (this.int_weights[c] == null) {
+            throw new ClassCastException("Weight column " + c + " is not integral.");
+        }
+        return this.int_weights[c].duplicate();
+    }
+
+    // O(1) to get a floating-point weight column, indexed by edge
+    public DoubleBuffer
+    double_weights (int c)
+    {
+        if (this.double_weights[c] == null) {
+            throw new ClassCastException("Weight column " + c + " is integral, read it with int_weights.");
+        }
+        return this.double_weights[c].duplicate();
+    }
+
+    // O(N + #Edges) to copy the graph to the heap
+    public CsrGraph
+    to_csr ()
+    {
+        int[] offsets = new int[this.n_nodes + 1], targets = new int[this.n_edges];
+        this.offsets.duplicate().get(offsets);
+        this.targets.duplicate().get(targets);
+        int n_columns = this.n_columns();
+        int[][] int_weights = new int[n_columns][];
+        double[][] double_weights = new double[n_columns][];
+        for (int c = 0; c < n_columns; ++c) {
+            if (this.int_weights[c] != null) {
+                int_weights[c] = new int[this.n_edges];
+                this.int_weights[c].duplicate().get(int_weights[c]);
+            } else {
+                double_weights[c] = new double[this.n_edges];
+                this.double_weights[c].duplicate().get(double_weights[c]);
+            }
+        }
+        return new CsrGraph(this.n_nodes, offsets, targets, int_weights, double_weights);
+    }
+
+    /* UTILS */
+
+    // O(#Edges + N*lg(N)), over the mapped buffers
+    public List<Object>
+    int_dijkstra(int s) {
+        return GraphSearch.int_dijkstra(this, s);
+    }
+    public List<Object>
+    double_dijkstra(int s) {
+        return GraphSearch.double_dijkstra(this, s);
+    }
+
+    // O(k*#Edges), k <= N being the #edges of the longest shortest path
+    public int[]
+    int_bellman_ford (int s) throws NegativeCycleException {
+        return GraphSearch.int_bellman_ford(this, s);
+    }
+}
@@ -0,0 +1,166 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The MinPlus class holds the min-plus (tropical) kernels behind the
+ * matrix shortest-path algorithms, over flat row-major int matrices in
+ * which NO_EDGE stands for "no path":
+ *  - Kernel.min_plus relaxes a row segment through one intermediate,
+ *    c[j] = min(c[j], a + b[j]), optionally carrying b's predecessors along
+ *    into c's (the update of Floyd-Warshall's inner loop);
+ *  - product(a, b) is the min-plus matrix product, c[i][j] = min over k of
+ *    a[i][k] + b[k][j], blocked into TILE*TILE tiles and parallel over row
+ *    tiles (squaring a distance matrix lg(N) times gives all-pairs shortest
+ *    paths, and one product joins two legs of a route).
+ * KERNEL is the SIMD one of MinPlusVector when the jdk.incubator.vector
+ * module is loaded (run with --add-modules jdk.incubator.vector), and the
+ * scalar SCALAR otherwise; both give the same results.
+ * @author Diogo Peralta Cordeiro <diogo@fc.up.pt>
+ */
+public final class
+MinPlus
+{
+    public static final int NO_EDGE = 1000000000; // 1e9 to avoid overflow
+    public static final int TILE = 64; // 3 tiles of dist and path fit in L2
+
+    /**
+     * Min-plus update of a row segment: for 0 <= j < length, where
+     * b[b_from + j] != NO_EDGE and a + b[b_from + j] < c[c_from + j], the
+     * latter becomes the former (and, when paths are given,
+     * c_path[c_from + j] becomes b_path[b_from + j]).
+     * a must not be NO_EDGE; c and b may be the same row.
+     */
+    public interface
+    Kernel
+    {
+        void min_plus (int[] c, int c_from, int[] b, int b_from, int a, int length);
+
+        void min_plus (int[] c, int[] c_path, int c_from, int[] b, int[] b_path, int b_from, int a, int length);
+    }
+
+    public static final Kernel SCALAR = new Scalar();
+    public static final Kernel KERNEL = pick();
+
+    private
+    MinPlus ()
+    {
+    }
+
+    // The SIMD kernel if the Vector API is there, loaded by name so this
+    // class builds and runs without it
+    private static Kernel
+    pick ()
+    {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (Kernel) Class.forName("MinPlusVector").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Not built with the module: stay scalar
+            }
+        }
+        return SCALAR;
+    }
+
+    private static final class
+    Scalar implements Kernel
+    {
+        public void
+        min_plus (int[] c, int c_from, int[] b, int b_from, int a, int length)
+        {
+            for (int j = 0; j < length; ++j) {
+                int b_j = b[b_from + j];
+                if (b_j != NO_EDGE && a + b_j < c[c_from + j]) {
+                    c[c_from + j] = a + b_j;
+                }
+            }
+        }
+
+        public void
+        min_plus (int[] c, int[] c_path, int c_from, int[] b, int[] b_path, int b_from, int a, int length)
+        {
+            for (int j = 0; j < length; ++j) {
+                int b_j = b[b_from + j];
+                if (b_j != NO_EDGE && a + b_j < c[c_from + j]) {
+                    c[c_from + j] = a + b_j;
+                    c_path[c_from + j] = b_path[b_from + j];
+                }
+            }
+        }
+    }
+
+    // O(n*m*p/P) to get the n*p min-plus product of the n*m matrix a and
+    // the m*p matrix b, P being the pool's parallelism
+    public static int[]
+    product (int[] a, int[] b, int n, int m, int p, ForkJoinPool pool)
+    {
+        if (a.length != n * m || b.length != m * p) {
+            throw new IllegalArgumentException("Matrices of " + a.length + " and " + b.length + " entries aren't " + n + "*" + m + " and " + m + "*" + p + ".");
+        }
+        int[] c = new int[n * p];
+        Arrays.fill(c, NO_EDGE);
+        pool.invoke(new Product(a, b, c, n, m, p, 0, (n + TILE - 1) / TILE));
+        return c;
+    }
+    public static int[]
+    product (int[] a, int[] b, int n)
+    {
+        return product(a, b, n, n, n, ForkJoinPool.commonPool());
+    }
+
+    // Computes the row tiles [lo, hi) of c = a * b, splitting the range in
+    // halves down to one row tile
+    private static final class
+    Product
+            extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] a, b, c;
+        private final int n, m, p;
+        private final int lo, hi;
+
+        Product (int[] a, int[] b, int[] c, int n, int m, int p, int lo, int hi)
+        {
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.n = n;
+            this.m = m;
+            this.p = p;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void
+        compute ()
+        {
+            if (this.hi - this.lo > 1) {
+                int mid = (this.lo + this.hi) >>> 1;
+                invokeAll(new Product(this.a, this.b, this.c, this.n, this.m, this.p, this.lo, mid),
+                          new Product(this.a, this.b, this.c, this.n, this.m, this.p, mid, this.hi));
+                return;
+            }
+
+            int[] a = this.a, b = this.b, c = this.c;
+            int m = this.m, p = this.p;
+            Kernel kernel = KERNEL;
+            int i0 = this.lo * TILE, i1 = Math.min(this.n, i0 + TILE);
+            for (int j0 = 0; j0 < p; j0 += TILE) {
+                int length = Math.min(TILE, p - j0);
+                for (int k0 = 0; k0 < m; k0 += TILE) {
+                    int k1 = Math.min(m, k0 + TILE);
+                    // c's tile (i, j) through b's tile (k, j), both in cache
+                    for (int i = i0; i < i1; ++i) {
+                        for (int k = k0; k < k1; ++k) {
+                            int a_ik = a[i * m + k];
+                            if (a_ik == NO_EDGE) continue;
+                            kernel.min_plus(c, i * p + j0, b, k * p + j0, a_ik, length);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+import jdk.incubator.vector.*;
+
+/**
+ * The MinPlusVector class is the SIMD MinPlus.Kernel: every step compares
+ * and adds a whole vector of lanes (the widest the CPU has), and blends
+ * the better sums, and their predecessors, into c under a lane mask, so
+ * the inner loop has no data-dependent branch. The tail shorter than a
+ * vector is done lane by lane.
+ * Uses the Vector API: build and run with --add-modules
+ * jdk.incubator.vector; MinPlus picks it up by itself when it's there.
+ * @author Diogo Peralta Cordeiro <diogo@fc.up.pt>
+ */
+public final class
+MinPlusVector implements MinPlus.Kernel
+{
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    private static final int NO_EDGE = MinPlus.NO_EDGE;
+
+    public void
+    min_plus (int[] c, int c_from, int[] b, int b_from, int a, int length)
+    {
+        int j = 0;
+        for (int upper = SPECIES.loopBound(length); j < upper; j += SPECIES.length()) {
+            IntVector b_j = IntVector.fromArray(SPECIES, b, b_from + j);
+            IntVector c_j = IntVector.fromArray(SPECIES, c, c_from + j);
+            IntVector sum = b_j.add(a);
+            VectorMask<Integer> better = b_j.compare(VectorOperators.NE, NO_EDGE).and(sum.compare(VectorOperators.LT, c_j));
+            c_j.blend(sum, better).intoArray(c, c_from + j);
+        }
+        for (; j < length; ++j) {
+            int b_j = b[b_from + j];
+            if (b_j != NO_EDGE && a + b_j < c[c_from + j]) {
+                c[c_from + j] = a + b_j;
+            }
+        }
+    }
+
+    public void
+    min_plus (int[] c, int[] c_path, int c_from, int[] b, int[] b_path, int b_from, int a, int length)
+    {
+        int j = 0;
+        for (int upper = SPECIES.loopBound(length); j < upper; j += SPECIES.length()) {
+            IntVector b_j = IntVector.fromArray(SPECIES, b, b_from + j);
+            IntVector c_j = IntVector.fromArray(SPECIES, c, c_from + j);
+            IntVector sum = b_j.add(a);
+            VectorMask<Integer> better = b_j.compare(VectorOperators.NE, NO_EDGE).and(sum.compare(VectorOperators.LT, c_j));
+            if (!better.anyTrue()) continue;
+            c_j.blend(sum, better).intoArray(c, c_from + j);
+            IntVector.fromArray(SPECIES, c_path, c_from + j)
+                    .blend(IntVector.fromArray(SPECIES, b_path, b_from + j), better)
+                    .intoArray(c_path, c_from + j);
+        }
+        for (; j < length; ++j) {
+            int b_j = b[b_from + j];
+            if (b_j != NO_EDGE && a + b_j < c[c_from + j]) {
+                c[c_from + j] = a + b_j;
+                c_path[c_from + j] = b_path[b_from + j];
+            }
+        }
+    }
+}
@@ -0,0 +1,264 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntConsumer;
+
+/**
+ * The MinimumSpanningForest class computes a minimum spanning forest of a
+ * CsrGraph whose edges are taken as undirected, weighted by weight column 0
+ * (the weight int_prim reads), with one tree per connected component:
+ *  - boruvka(g, pool): Boruvka's algorithm, in parallel rounds on a
+ *    ForkJoinPool in which every component picks its lightest outgoing
+ *    edge with an atomic minimum, O(#Edges * lg(N)) work;
+ *  - filter_kruskal(g): Osipov, Sanders and Singler's filter-Kruskal,
+ *    which partitions the edges around a pivot like quicksort, solves the
+ *    light half and drops the heavy edges already inside a tree before
+ *    going on, O(#Edges + N*lg(N)*lg(#Edges/N)) expected.
+ * Ties are broken by edge index, so both build the same forest.
+ * The forest is given as its edges (indices into the CSR), as come_from
+ * (each node's parent when every tree hangs from its least node, as
+ * int_prim's tree hangs from node 0, but with -1 for the roots), its total
+ * weight and its number of trees.
+ * @author Diogo Peralta Cordeiro <diogo@fc.up.pt>
+ */
+public final class
+MinimumSpanningForest
+{
+    private static final int KRUSKAL_THRESHOLD = 32; // edges sorted directly
+    private static final int SEQUENTIAL_THRESHOLD = 2048; // edges or nodes per task
+
+    public final int[] edges, come_from;
+    public final double total_weight;
+    public final int n_trees;
+
+    private
+    MinimumSpanningForest (CsrGraph g, int[] edges, int n_edges)
+    {
+        this.edges = Arrays.copyOf(edges, n_edges);
+        double[] weight = g.double_weights(0);
+        int[] source = sources(g);
+
+        // Undirected adjacency of the forest, to hang every tree from its least node
+        int[] offsets = new int[g.n_nodes + 1];
+        for (int e : this.edges) {
+            ++offsets[source[e] + 1];
+            ++offsets[g.targets[e] + 1];
+        }
+        for (int u = 0; u < g.n_nodes; ++u) offsets[u + 1] += offsets[u];
+        int[] fill = Arrays.copyOf(offsets, g.n_nodes), adjacent = new int[2 * this.edges.length];
+        double total_weight = 0;
+        for (int e : this.edges) {
+            adjacent[fill[source[e]]++] = g.targets[e];
+            adjacent[fill[g.targets[e]]++] = source[e];
+            total_weight += weight[e];
+        }
+        this.total_weight = total_weight;
+
+        this.come_from = new int[g.n_nodes];
+        Arrays.fill(this.come_from, -2);
+        int[] queue = new int[g.n_nodes];
+        int n_trees = 0;
+        for (int root = 0; root < g.n_nodes; ++root) {
+            if (this.come_from[root] != -2) continue;
+            ++n_trees;
+            this.come_from[root] = -1;
+            int head = 0, tail = 0;
+            queue[tail++] = root;
+            while (head < tail) {
+                int u = queue[head++];
+                for (int i = offsets[u]; i < offsets[u + 1]; ++i) {
+                    int w = adjacent[i];
+                    if (this.come_from[w] == -2) {
+                        this.come_from[w] = u;
+                        queue[tail++] = w;
+                    }
+                }
+            }
+        }
+        this.n_trees = n_trees;
+    }
+
+    // O(#Edges) to get the source node of every edge
+    private static int[]
+    sources (CsrGraph g)
+    {
+        int[] source = new int[g.n_edges];
+        for (int u = 0; u < g.n_nodes; ++u) {
+            Arrays.fill(source, g.offsets[u], g.offsets[u + 1], u);
+        }
+        return source;
+    }
+
+    public static MinimumSpanningForest
+    boruvka (DirectedWeightedGraph<?> g, ForkJoinPool pool)
+    {
+        return boruvka(g.freeze(), pool);
+    }
+    public static MinimumSpanningForest
+    filter_kruskal (DirectedWeightedGraph<?> g)
+    {
+        return filter_kruskal(g.freeze());
+    }
+
+    /* Boruvka */
+
+    // O(#Edges * lg(N) / P) time, P being the pool's parallelism
+    public static MinimumSpanningForest
+    boruvka (CsrGraph g, ForkJoinPool pool)
+    {
+        double[] weight = g.double_weights(0);
+        int[] source = sources(g), targets = g.targets;
+        int[] component = new int[g.n_nodes];
+        for (int u = 0; u < g.n_nodes; ++u) component[u] = u;
+        UnionFind forest = new UnionFind(g.n_nodes);
+        int[] chosen = new int[Math.max(0, g.n_nodes - 1)];
+        int n_chosen = 0;
+        AtomicIntegerArray lightest = new AtomicIntegerArray(g.n_nodes); // component -> edge, -1 if none
+
+        while (true) {
+            // Every component picks its lightest edge leaving it
+            for (int u = 0; u < g.n_nodes; ++u) lightest.set(u, -1);
+            pool.invoke(new ForEach(0, g.n_edges, e -> {
+                int cu = component[source[e]], cw = component[targets[e]];
+                if (cu == cw) return;
+                lighten(lightest, cu, e, weight);
+                lighten(lightest, cw, e, weight);
+            }));
+
+            // Merge along the picked edges (two components may pick the same one)
+            boolean merged = false;
+            for (int c = 0; c < g.n_nodes; ++c) {
+                int e = lightest.get(c);
+                if (e >= 0 && forest.union(source[e], targets[e])) {
+                    chosen[n_chosen++] = e;
+                    merged = true;
+                }
+            }
+            if (!merged) break;
+
+            // Relabel every node with its component's representative
+            pool.invoke(new ForEach(0, g.n_nodes, u ->
+                component[u] = forest.find_root(u)
+            ));
+        }
+
+        return new MinimumSpanningForest(g, chosen, n_chosen);
+    }
+
+    // Runs body on every index of [lo, hi), splitting the range in halves
+    // down to SEQUENTIAL_THRESHOLD indices
+    private static final class
+    ForEach
+            extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int lo, hi;
+        private final IntConsumer body;
+
+        ForEach (int lo, int hi, IntConsumer body)
+        {
+            this.lo = lo;
+            this.hi = hi;
+            this.body = body;
+        }
+
+        @Override
+        protected void
+        compute ()
+        {
+            if (this.hi - this.lo > SEQUENTIAL_THRESHOLD) {
+                int mid = (this.lo + this.hi) >>> 1;
+                invokeAll(new ForEach(this.lo, mid, this.body), new ForEach(mid, this.hi, this.body));
+                return;
+            }
+
+            for (int i = this.lo; i < this.hi; ++i) {
+                this.body.accept(i);
+            }
+        }
+    }
+
+    // Lowers lightest[c] to edge e if e is lighter (ties by index)
+    private static void
+    lighten (AtomicIntegerArray lightest, int c, int e, double[] weight)
+    {
+        for (int current = lightest.get(c); current < 0 || lighter(e, current, weight); current = lightest.get(c)) {
+            if (lightest.compareAndSet(c, current, e)) return;
+        }
+    }
+
+    private static boolean
+    lighter (int a, int b, double[] weight)
+    {
+        int cmp = Double.compare(weight[a], weight[b]);
+        return cmp < 0 || (cmp == 0 && a < b);
+    }
+
+    /* Filter-Kruskal */
+
+    // O(#Edges + N*lg(N)*lg(#Edges/N)) expected
+    public static MinimumSpanningForest
+    filter_kruskal (CsrGraph g)
+    {
+        double[] weight = g.double_weights(0);
+        int[] source = sources(g);
+        int[] edges = new int[g.n_edges];
+        for (int e = 0; e < g.n_edges; ++e) {
+            edges[e] = e;
+        }
+        UnionFind forest = new UnionFind(g.n_nodes);
+        int[] chosen = new int[Math.max(0, g.n_nodes - 1)];
+        int[] n_chosen = {0};
+        filter_kruskal(g, weight, source, edges, 0, edges.length, forest, chosen, n_chosen, new Random(g.n_edges));
+        return new MinimumSpanningForest(g, chosen, n_chosen[0]);
+    }
+
+    // Adds the forest edges among edges[lo..hi), lightest first
+    private static void
+    filter_kruskal (CsrGraph g, double[] weight, int[] source, int[] edges, int lo, int hi,
+                    UnionFind forest, int[] chosen, int[] n_chosen, Random random)
+    {
+        while (hi - lo > KRUSKAL_THRESHOLD && forest.n_sets() > 1) {
+            // Partition around a random pivot: lighter edges first
+            int pivot = edges[lo + random.nextInt(hi - lo)];
+            int mid = lo;
+            for (int i = lo; i < hi; ++i) {
+                if (lighter(edges[i], pivot, weight)) {
+                    int t = edges[i];
+                    edges[i] = edges[mid];
+                    edges[mid++] = t;
+                }
+            }
+            filter_kruskal(g, weight, source, edges, lo, mid, forest, chosen, n_chosen, random);
+
+            // Filter: heavy edges inside a tree can't be in the forest
+            int kept = mid;
+            for (int i = mid; i < hi; ++i) {
+                int e = edges[i];
+                if (forest.find(source[e]) != forest.find(g.targets[e])) {
+                    edges[kept++] = e;
+                }
+            }
+            lo = mid;
+            hi = kept;
+        }
+
+        // Kruskal on what's left: insertion sort, then join
+        for (int i = lo + 1; i < hi; ++i) {
+            int e = edges[i], j = i - 1;
+            while (j >= lo && lighter(e, edges[j], weight)) {
+                edges[j + 1] = edges[j];
+                --j;
+            }
+            edges[j + 1] = e;
+        }
+        for (int i = lo; i < hi && forest.n_sets() > 1; ++i) {
+            int e = edges[i];
+            if (forest.union(source[e], g.targets[e])) {
+                chosen[n_chosen[0]++] = edges[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/**
+ * The MonotoneQueue interface is a min-priority queue of nodes named 0
+ * through N-1 with non-negative int priorities, for algorithms (like
+ * Dijkstra's with non-negative weights) that never queue a priority lower
+ * than the last one polled.
+ * Pushing an already queued node replaces its priority, which can only be
+ * decreased.
+ * @author Diogo Peralta Cordeiro <diogo@fc.up.pt>
+ */
+public interface
+MonotoneQueue
+{
+    // Largest edge weight for which a BucketQueue is picked over a RadixHeap
+    int MAX_BUCKET_WEIGHT = 1 << 16;
+
+    void push (int u, int key);
+
+    int poll ();
+
+    boolean is_empty ();
+
+    // Dial's bucket queue when the weights are small, a radix heap otherwise
+    static MonotoneQueue
+    for_max_weight (int n_nodes, int max_weight)
+    {
+        if (max_weight <= MAX_BUCKET_WEIGHT) {
+            return new BucketQueue(n_nodes, max_weight);
+        }
+        return new RadixHeap(n_nodes);
+    }
+}
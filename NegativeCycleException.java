@@ -0,0 +1,30 @@
+/**
+ * The NegativeCycleException is thrown by shortest path algorithms that
+ * find a cycle whose weights add up to less than zero, so that no shortest
+ * distance exists for the nodes it reaches.
+ * The offending cycle is reported as its nodes in edge order: an edge
+ * goes from cycle[i] to cycle[i+1], and the last node links back to the
+ * first one.
+ * @author Diogo Peralta Cordeiro <diogo@fc.up.pt>
+ */
+public class
+NegativeCycleException
+        extends Exception
+{
+    private static final long serialVersionUID = 1L;
+    private final int[] cycle;
+
+    public
+    NegativeCycleException (int[] cycle)
+    {
+        super("Negative-weight cycle detected (" + cycle.length + " nodes, through node " + cycle[0] + ").");
+        this.cycle = cycle;
+    }
+
+    // O(1) to get the nodes of the cycle, in edge order
+    public int[]
+    cycle ()
+    {
+        return this.cycle.clone();
+    }
+}
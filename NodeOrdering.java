@@ -0,0 +1,464 @@
+import java.util.*;
+
+/**
+ * The NodeOrdering class renames the nodes of a graph so that nodes used
+ * together get close ids, and so close places in the arrays indexed by
+ * them: traversals then touch fewer cache lines and pages.
+ * An ordering is a permutation, new_id[u] being the new name of node u
+ * and old_id[v] the old name of node v, computed by one of:
+ *  - reverse_cuthill_mckee(g): Reverse Cuthill-McKee, a BFS from a
+ *    pseudo-peripheral node of every component visiting neighbours by
+ *    increasing degree, then reversed, which keeps the bandwidth small;
+ *  - bfs(g, root): plain BFS order from root, then from the least node
+ *    left in every other component;
+ *  - by_degree(g): by decreasing degree, hubs first;
+ *  - hilbert(x, y): along a Hilbert curve through the nodes' coordinates,
+ *    for graphs embedded in the plane (road networks, meshes).
+ * Edges are taken as undirected when ordering: in- and out-degrees add up.
+ * relabel() builds the renamed graph (a CSR row's edges are sorted by
+ * target, to walk the arrays forwards), and the to_old/by_old helpers bring
+ * results computed on it back to the old names.
+ * @author Diogo Peralta Cordeiro <diogo@fc.up.pt>
+ */
+public final class
+NodeOrdering
+{
+    private static final int PERIPHERAL_ROUNDS = 8; // BFS rounds looking for a far node
+
+    public final int[] new_id, old_id;
+
+    // O(N) to wrap a permutation given as the nodes in their new order
+    public
+    NodeOrdering (int[] old_id)
+    {
+        this.old_id = old_id;
+        this.new_id = new int[old_id.length];
+        Arrays.fill(this.new_id, -1);
+        for (int v = 0; v < old_id.length; ++v) {
+            if (this.new_id[old_id[v]] != -1) {
+                throw new IllegalArgumentException("Node " + old_id[v] + " appears twice in the ordering.");
+            }
+            this.new_id[old_id[v]] = v;
+        }
+    }
+
+    /* Orderings */
+
+    // O(N + #Edges) for the undirected adjacency: {offsets, neighbours}
+    private static int[][]
+    undirected (CsrGraph g)
+    {
+        int[] offsets = new int[g.n_nodes + 1];
+        for (int u = 0; u < g.n_nodes; ++u) {
+            for (int e = g.offsets[u]; e < g.offsets[u + 1]; ++e) {
+                ++offsets[u + 1];
+                ++offsets[g.targets[e] + 1];
+            }
+        }
+        for (int u = 0; u < g.n_nodes; ++u) {
+            offsets[u + 1] += offsets[u];
+        }
+        int[] fill = Arrays.copyOf(offsets, g.n_nodes), neighbours = new int[offsets[g.n_nodes]];
+        for (int u = 0; u < g.n_nodes; ++u) {
+            for (int e = g.offsets[u]; e < g.offsets[u + 1]; ++e) {
+                neighbours[fill[u]++] = g.targets[e];
+                neighbours[fill[g.targets[e]]++] = u;
+            }
+        }
+        return new int[][] {offsets, neighbours};
+    }
+
+    // O(N*lg(N)) to sort nodes by key, then by id (keys must be non-negative)
+    private static int[]
+    sort_by (long[] key)
+    {
+        long[] packed = new long[key.length];
+        for (int u = 0; u < key.length; ++u) {
+            packed[u] = key[u] << 32 | u;
+        }
+        Arrays.sort(packed);
+        int[] order = new int[key.length];
+        for (int i = 0; i < key.length; ++i) {
+            order[i] = (int) packed[i];
+        }
+        return order;
+    }
+
+    // O(#Edges*lg(max degree) + N*lg(N))
+    public static NodeOrdering
+    reverse_cuthill_mckee (CsrGraph g)
+    {
+        int[][] adjacency = undirected(g);
+        int[] offsets = adjacency[0], neighbours = adjacency[1];
+        long[] degree = new long[g.n_nodes];
+        for (int u = 0; u < g.n_nodes; ++u) {
+            degree[u] = offsets[u + 1] - offsets[u];
+        }
+
+        int[] order = new int[g.n_nodes], level = new int[g.n_nodes];
+        long[] scratch = new long[16];
+        int n_ordered = 0;
+        boolean[] placed = new boolean[g.n_nodes];
+        for (int start : sort_by(degree)) {
+            if (placed[start]) continue;
+            int root = peripheral(start, offsets, neighbours, degree, level, order, n_ordered);
+
+            // Cuthill-McKee: BFS, unplaced neighbours by increasing degree
+            int head = n_ordered;
+            order[n_ordered++] = root;
+            placed[root] = true;
+            while (head < n_ordered) {
+                int u = order[head++];
+                int first = n_ordered;
+                for (int i = offsets[u]; i < offsets[u + 1]; ++i) {
+                    int w = neighbours[i];
+                    if (!placed[w]) {
+                        placed[w] = true;
+                        order[n_ordered++] = w;
+                    }
+                }
+                int n_new = n_ordered - first;
+                if (n_new > 1) {
+                    if (scratch.length < n_new) scratch = new long[Math.max(n_new, 2 * scratch.length)];
+                    for (int i = 0; i < n_new; ++i) {
+                        int w = order[first + i];
+                        scratch[i] = degree[w] << 32 | w;
+                    }
+                    Arrays.sort(scratch, 0, n_new);
+                    for (int i = 0; i < n_new; ++i) {
+                        order[first + i] = (int) scratch[i];
+                    }
+                }
+            }
+        }
+
+        // Reverse it
+        for (int i = 0, j = g.n_nodes - 1; i < j; ++i, --j) {
+            int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+        }
+        return new NodeOrdering(order);
+    }
+
+    // George and Liu's pseudo-peripheral node search in start's component:
+    // BFS again from the least-degree node of the last level while that
+    // makes the component deeper (queue[from..] is free to use)
+    private static int
+    peripheral (int start, int[] offsets, int[] neighbours, long[] degree, int[] level, int[] queue, int from)
+    {
+        int root = start, depth = -1;
+        for (int round = 0; round < PERIPHERAL_ROUNDS; ++round) {
+            // BFS from root, marking levels (level 0 means unseen here)
+            int head = from, tail = from;
+            queue[tail++] = root;
+            level[root] = 1;
+            while (head < tail) {
+                int u = queue[head++];
+                for (int i = offsets[u]; i < offsets[u + 1]; ++i) {
+                    int w = neighbours[i];
+                    if (level[w] == 0) {
+                        level[w] = level[u] + 1;
+                        queue[tail++] = w;
+                    }
+                }
+            }
+            int last_level = level[queue[tail - 1]];
+            int candidate = queue[tail - 1];
+            for (int i = tail - 1; i >= from && level[queue[i]] == last_level; --i) {
+                if (degree[queue[i]] < degree[candidate]) candidate = queue[i];
+            }
+            for (int i = from; i < tail; ++i) {
+                level[queue[i]] = 0;
+            }
+            if (last_level <= depth) break;
+            depth = last_level;
+            root = candidate;
+        }
+        return root;
+    }
+
+    // O(N + #Edges)
+    public static NodeOrdering
+    bfs (CsrGraph g, int root)
+    {
+        int[][] adjacency = undirected(g);
+        int[] offsets = adjacency[0], neighbours = adjacency[1];
+        int[] order = new int[g.n_nodes];
+        boolean[] placed = new boolean[g.n_nodes];
+        int n_ordered = visit(root, offsets, neighbours, placed, order, 0);
+        for (int start = 0; start < g.n_nodes; ++start) {
+            if (!placed[start]) {
+                n_ordered = visit(start, offsets, neighbours, placed, order, n_ordered);
+            }
+        }
+        return new NodeOrdering(order);
+    }
+
+    // BFS from start, appending the nodes it places to order[n_ordered..]
+    // Returns the new number of ordered nodes
+    private static int
+    visit (int start, int[] offsets, int[] neighbours, boolean[] placed, int[] order, int n_ordered)
+    {
+        int head = n_ordered;
+        order[n_ordered++] = start;
+        placed[start] = true;
+        while (head < n_ordered) {
+            int u = order[head++];
+            for (int i = offsets[u]; i < offsets[u + 1]; ++i) {
+                int w = neighbours[i];
+                if (!placed[w]) {
+                    placed[w] = true;
+                    order[n_ordered++] = w;
+                }
+            }
+        }
+        return n_ordered;
+    }
+
+    // O(N*lg(N) + #Edges)
+    public static NodeOrdering
+    by_degree (CsrGraph g)
+    {
+        long[] degree = new long[g.n_nodes];
+        for (int u = 0; u < g.n_nodes; ++u) {
+            for (int e = g.offsets[u]; e < g.offsets[u + 1]; ++e) {
+                ++degree[u];
+                ++degree[g.targets[e]];
+            }
+        }
+        long[] key = new long[g.n_nodes];
+        for (int u = 0; u < g.n_nodes; ++u) {
+            key[u] = Integer.MAX_VALUE - degree[u]; // decreasing degree
+        }
+        return new NodeOrdering(sort_by(key));
+    }
+
+    // O(N*lg(N)), node u being at (x[u], y[u])
+    public static NodeOrdering
+    hilbert (double[] x, double[] y)
+    {
+        int n_nodes = x.length;
+        double min_x = Double.POSITIVE_INFINITY, max_x = Double.NEGATIVE_INFINITY;
+        double min_y = Double.POSITIVE_INFINITY, max_y = Double.NEGATIVE_INFINITY;
+        for (int u = 0; u < n_nodes; ++u) {
+            min_x = Math.min(min_x, x[u]);
+            max_x = Math.max(max_x, x[u]);
+            min_y = Math.min(min_y, y[u]);
+            max_y = Math.max(max_y, y[u]);
+        }
+        // Snap to a 2^15 x 2^15 grid, so Hilbert indices fit in 30 bits
+        int side = 1 << 15;
+        double scale_x = max_x > min_x ? (side - 1) / (max_x - min_x) : 0;
+        double scale_y = max_y > min_y ? (side - 1) / (max_y - min_y) : 0;
+        long[] key = new long[n_nodes];
+        for (int u = 0; u < n_nodes; ++u) {
+            int cx = (int) ((x[u] - min_x) * scale_x), cy = (int) ((y[u] - min_y) * scale_y);
+            key[u] = hilbert_index(side, cx, cy);
+        }
+        return new NodeOrdering(sort_by(key));
+    }
+
+    // O(lg(side)) to get the position of cell (x, y) along the Hilbert
+    // curve filling a side x side grid
+    private static long
+    hilbert_index (int side, int x, int y)
+    {
+        long d = 0;
+        for (int s = side / 2; s > 0; s /= 2) {
+            int rx = (x & s) > 0 ? 1 : 0, ry = (y & s) > 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            // Rotate the quadrant
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = side - 1 - x;
+                    y = side - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    public static NodeOrdering
+    reverse_cuthill_mckee (DirectedWeightedGraph<?> g)
+    {
+        return reverse_cuthill_mckee(g.freeze());
+    }
+    public static NodeOrdering
+    reverse_cuthill_mckee (DirectedMultiGraph g)
+    {
+        return reverse_cuthill_mckee(g.freeze());
+    }
+    public static NodeOrdering
+    bfs (DirectedWeightedGraph<?> g, int root)
+    {
+        return bfs(g.freeze(), root);
+    }
+    public static NodeOrdering
+    bfs (DirectedMultiGraph g, int root)
+    {
+        return bfs(g.freeze(), root);
+    }
+    public static NodeOrdering
+    by_degree (DirectedWeightedGraph<?> g)
+    {
+        return by_degree(g.freeze());
+    }
+    public static NodeOrdering
+    by_degree (DirectedMultiGraph g)
+    {
+        return by_degree(g.freeze());
+    }
+
+    /* Relabelling */
+
+    // O(N + #Edges*lg(max degree)) to get g with every node renamed
+    public CsrGraph
+    relabel (CsrGraph g)
+    {
+        int n_columns = g.n_columns();
+        int[] offsets = new int[g.n_nodes + 1];
+        int max_degree = 0;
+        for (int v = 0; v < g.n_nodes; ++v) {
+            int degree = g.degree(this.old_id[v]);
+            offsets[v + 1] = offsets[v] + degree;
+            max_degree = Math.max(max_degree, degree);
+        }
+        int[] targets = new int[g.n_edges];
+        int[][] int_weights = new int[n_columns][];
+        double[][] double_weights = new double[n_columns][];
+        for (int c = 0; c < n_columns; ++c) {
+            if (g.is_integral(c)) {
+                int_weights[c] = new int[g.n_edges];
+            } else {
+                double_weights[c] = new double[g.n_edges];
+            }
+        }
+
+        int[][] old_int_weights = new int[n_columns][];
+        double[][] old_double_weights = new double[n_columns][];
+        for (int c = 0; c < n_columns; ++c) {
+            if (int_weights[c] != null) {
+                old_int_weights[c] = g.int_weights(c);
+            } else {
+                old_double_weights[c] = g.double_weights(c);
+            }
+        }
+
+        // Row v is old row old_id[v], sorted by new target
+        long[] row = new long[max_degree];
+        for (int v = 0; v < g.n_nodes; ++v) {
+            int first = g.offsets[this.old_id[v]], degree = offsets[v + 1] - offsets[v];
+            for (int i = 0; i < degree; ++i) {
+                row[i] = (long) this.new_id[g.targets[first + i]] << 32 | i;
+            }
+            Arrays.sort(row, 0, degree);
+            for (int i = 0; i < degree; ++i) {
+                int e = first + (int) row[i], f = offsets[v] + i;
+                targets[f] = (int) (row[i] >>> 32);
+                for (int c = 0; c < n_columns; ++c) {
+                    if (int_weights[c] != null) {
+                        int_weights[c][f] = old_int_weights[c][e];
+                    } else {
+                        double_weights[c][f] = old_double_weights[c][e];
+                    }
+                }
+            }
+        }
+
+        return new CsrGraph(g.n_nodes, offsets, targets, int_weights, double_weights);
+    }
+
+    // O(N + #Edges) to get g with every node renamed
+    @SuppressWarnings("unchecked")
+    public <T> DirectedWeightedGraph<T>
+    relabel (DirectedWeightedGraph<T> g)
+    {
+        DirectedWeightedGraph<T> relabelled = new DirectedWeightedGraph<>(g.n_nodes, g.n_edges);
+        for (int v = 0; v < g.n_nodes; ++v) {
+            int u = this.old_id[v];
+            for (int w : g.edges(u)) {
+                relabelled.link(v, this.new_id[w], (T[]) g.weight(u, w).toArray());
+            }
+        }
+        return relabelled;
+    }
+
+    // O(N + #Edges) to get g with every node renamed (parallel edges kept)
+    public DirectedMultiGraph
+    relabel (DirectedMultiGraph g)
+    {
+        DirectedMultiGraph relabelled = new DirectedMultiGraph(g.n_nodes, g.seen != null);
+        for (int v = 0; v < g.n_nodes; ++v) {
+            Iterator<Integer> backwards = g.edges(this.old_id[v]).descendingIterator();
+            while (backwards.hasNext()) {
+                relabelled.link_first(v, this.new_id[backwards.next()]);
+            }
+        }
+        return relabelled;
+    }
+
+    /* Mapping back */
+
+    // O(1) to get the new name of old node u
+    public int
+    to_new (int u)
+    {
+        return this.new_id[u];
+    }
+
+    // O(1) to get the old name of new node v
+    public int
+    to_old (int v)
+    {
+        return this.old_id[v];
+    }
+
+    // O(N) to reindex values by old node (e.g., dist from a relabelled run)
+    public int[]
+    by_old (int[] by_new)
+    {
+        int[] by_old = new int[by_new.length];
+        for (int v = 0; v < by_new.length; ++v) {
+            by_old[this.old_id[v]] = by_new[v];
+        }
+        return by_old;
+    }
+    public double[]
+    by_old (double[] by_new)
+    {
+        double[] by_old = new double[by_new.length];
+        for (int v = 0; v < by_new.length; ++v) {
+            by_old[this.old_id[v]] = by_new[v];
+        }
+        return by_old;
+    }
+
+    // O(N) to reindex and rename nodes held by node (e.g., a come_from
+    // array), negative entries meaning "none" being kept as they are
+    public int[]
+    nodes_by_old (int[] by_new)
+    {
+        int[] by_old = new int[by_new.length];
+        for (int v = 0; v < by_new.length; ++v) {
+            by_old[this.old_id[v]] = by_new[v] < 0 ? by_new[v] : this.old_id[by_new[v]];
+        }
+        return by_old;
+    }
+    public List<List<Integer>>
+    nodes_by_old (List<List<Integer>> by_new)
+    {
+        List<List<Integer>> by_old = new ArrayList<>(Collections.nCopies(by_new.size(), null));
+        for (int v = 0; v < by_new.size(); ++v) {
+            List<Integer> nodes = new LinkedList<>();
+            for (int w : by_new.get(v)) {
+                nodes.add(this.old_id[w]);
+            }
+            by_old.set(this.old_id[v], nodes);
+        }
+        return by_old;
+    }
+}
@@ -0,0 +1,235 @@
+import java.lang.foreign.*;
+import java.util.*;
+
+/**
+ * The OffHeapGraph class is an immutable CSR graph (see CsrGraph) kept in
+ * native memory: offsets, targets and the weights of column 0 are
+ * MemorySegments allocated from an Arena the caller owns, so the graph
+ * lives exactly as long as the arena stays open.
+ * Offsets are longs, so the graph can hold more than 2^31 edges, and none
+ * of it is ever scanned or moved by the garbage collector: the heap holds
+ * a handful of references whatever the graph's size.
+ * Graphs are copied from a CsrGraph or a DirectedWeightedGraph, or built
+ * by a Builder fed the edges in order of their source, and searched
+ * through GraphSearch like any other GraphReader.
+ * Uses the Foreign Function & Memory API: Java 22, or 21 with
+ * --enable-preview.
+ * @author Diogo Peralta Cordeiro <diogo@fc.up.pt>
+ */
+public final class
+OffHeapGraph implements GraphReader
+{
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG;
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT;
+    private static final ValueLayout.OfDouble DOUBLE = ValueLayout.JAVA_DOUBLE;
+
+    public final int n_nodes;  // N
+    public final long n_edges; // #Edges
+    private final MemorySegment offsets, targets;
+    private final MemorySegment weights; // ints if integral, doubles otherwise
+    private final boolean integral;
+
+    private
+    OffHeapGraph (int n_nodes, long n_edges, MemorySegment offsets, MemorySegment targets,
+                  MemorySegment weights, boolean integral)
+    {
+        this.n_nodes = n_nodes;
+        this.n_edges = n_edges;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.integral = integral;
+    }
+
+    /**
+     * Fills an OffHeapGraph edge by edge, the edges of node u coming after
+     * those of every node before u.
+     */
+    public static final class
+    Builder
+    {
+        private final int n_nodes;
+        private final long n_edges;
+        private final boolean integral;
+        private final MemorySegment offsets, targets, weights;
+        private int u = 0;  // offsets[0..u] are set
+        private long e = 0; // edges added so far
+
+        // O(1) heap, O(N + #Edges) native memory from arena
+        public
+        Builder (Arena arena, int n_nodes, long n_edges, boolean integral)
+        {
+            this.n_nodes = n_nodes;
+            this.n_edges = n_edges;
+            this.integral = integral;
+            this.offsets = arena.allocate(LONG.byteSize() * (n_nodes + 1L), LONG.byteAlignment());
+            this.targets = arena.allocate(INT.byteSize() * n_edges, INT.byteAlignment());
+            this.weights = integral
+                    ? arena.allocate(INT.byteSize() * n_edges, INT.byteAlignment())
+                    : arena.allocate(DOUBLE.byteSize() * n_edges, DOUBLE.byteAlignment());
+        }
+
+        // Moves on to the edges of u
+        private void
+        source (int u)
+        {
+            if (u < this.u || u >= this.n_nodes) {
+                throw new IllegalArgumentException("Edge from " + u + " out of order, edges must be added by source.");
+            }
+            if (this.e == this.n_edges) {
+                throw new IllegalStateException("More than the " + this.n_edges + " edges announced.");
+            }
+            while (this.u < u) {
+                this.offsets.setAtIndex(LONG, ++this.u, this.e);
+            }
+        }
+
+        // O(1) to add the edge u->w
+        public Builder
+        add (int u, int w, int weight)
+        {
+            this.source(u);
+            this.targets.setAtIndex(INT, this.e, w);
+            if (this.integral) {
+                this.weights.setAtIndex(INT, this.e, weight);
+            } else {
+                this.weights.setAtIndex(DOUBLE, this.e, weight);
+            }
+            ++this.e;
+            return this;
+        }
+        public Builder
+        add (int u, int w, double weight)
+        {
+            if (this.integral) {
+                throw new ClassCastException("Weight " + weight + " on edge " + u + "-" + w + " is not integral.");
+            }
+            this.source(u);
+            this.targets.setAtIndex(INT, this.e, w);
+            this.weights.setAtIndex(DOUBLE, this.e, weight);
+            ++this.e;
+            return this;
+        }
+
+        // O(N) to close the remaining nodes
+        public OffHeapGraph
+        build ()
+        {
+            if (this.e != this.n_edges) {
+                throw new IllegalStateException("Only " + this.e + " of the " + this.n_edges + " edges announced were added.");
+            }
+            while (this.u < this.n_nodes) {
+                this.offsets.setAtIndex(LONG, ++this.u, this.e);
+            }
+            return new OffHeapGraph(this.n_nodes, this.n_edges, this.offsets, this.targets, this.weights, this.integral);
+        }
+    }
+
+    // O(N + #Edges) to copy a CsrGraph's weight column 0 graph off-heap
+    public static OffHeapGraph
+    of (CsrGraph g, Arena arena)
+    {
+        boolean integral = g.is_integral(0);
+        Builder builder = new Builder(arena, g.n_nodes, g.n_edges, integral);
+        int[] int_weight = integral ? g.int_weights(0) : null;
+        double[] double_weight = integral ? null : g.double_weights(0);
+        for (int u = 0; u < g.n_nodes; ++u) {
+            for (int e = g.offsets[u]; e < g.offsets[u + 1]; ++e) {
+                if (integral) {
+                    builder.add(u, g.targets[e], int_weight[e]);
+                } else {
+                    builder.add(u, g.targets[e], double_weight[e]);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    // O(N + #Edges) to copy a graph off-heap, first weights only (0 if none)
+    public static OffHeapGraph
+    of (DirectedWeightedGraph<?> g, Arena arena)
+    {
+        boolean integral = true;
+        for (int u = 0; u < g.n_nodes && integral; ++u) {
+            for (int w : g.edges(u)) {
+                List<?> weight = g.weight(u, w);
+                if (weight.isEmpty()) continue;
+                Object x = weight.get(0);
+                if (!(x instanceof Integer || x instanceof Short || x instanceof Byte)) {
+                    integral = false;
+                    break;
+                }
+            }
+        }
+        Builder builder = new Builder(arena, g.n_nodes, g.n_edges, integral);
+        for (int u = 0; u < g.n_nodes; ++u) {
+            for (int w : g.edges(u)) {
+                List<?> weight = g.weight(u, w);
+                if (weight.isEmpty()) {
+                    builder.add(u, w, 0);
+                } else if (integral) {
+                    // int_weight() only takes Integers, Shorts and Bytes widen here
+                    builder.add(u, w, ((Number) weight.get(0)).intValue());
+                } else {
+                    builder.add(u, w, g.double_weight(u, w));
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    // O(1) to know if the weights are stored as ints
+    public boolean
+    is_integral ()
+    {
+        return this.integral;
+    }
+
+    // O(1) to get the out-degree of a node
+    public long
+    degree (int u)
+    {
+        return this.first_edge(u + 1) - this.first_edge(u);
+    }
+
+    /* GraphReader */
+
+    public int
+    n_nodes ()
+    {
+        return this.n_nodes;
+    }
+
+    public long
+    n_edges ()
+    {
+        return this.n_edges;
+    }
+
+    public long
+    first_edge (int u)
+    {
+        return this.offsets.getAtIndex(LONG, u);
+    }
+
+    public int
+    target (long e)
+    {
+        return this.targets.getAtIndex(INT, e);
+    }
+
+    public int
+    int_weight (long e)
+    {
+        if (!this.integral) {
+            throw new ClassCastException("Weights are not integral.");
+        }
+        return this.weights.getAtIndex(INT, e);
+    }
+
+    public double
+    double_weight (long e)
+    {
+        return this.integral ? this.weights.getAtIndex(INT, e) : this.weights.getAtIndex(DOUBLE, e);
+    }
+}
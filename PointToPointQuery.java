@@ -0,0 +1,232 @@
+import java.util.*;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * The PointToPointQuery class answers shortest path queries from a source s
+ * to a single target t over a CsrGraph with non-negative integral weights
+ * (weight column 0), stopping as soon as t's distance is known:
+ *  - int_dijkstra(s, t): Dijkstra's algorithm with early termination;
+ *  - int_bidirectional_dijkstra(s, t): Dijkstra's algorithm from s over the
+ *    graph and from t over its transpose, until the two searches meet;
+ *  - int_astar(s, t, h): A* guided by a caller-supplied heuristic h(u, t)
+ *    that must never overestimate the distance from u to t.
+ * Search state is stamped with a query number instead of being reset, so
+ * a query costs O(nodes touched * lg) rather than O(N).
+ * Queries return the distance (1e9 if t is unreachable); path() rebuilds
+ * the path found by the last one. Not thread-safe: use one per thread.
+ * @author Diogo Peralta Cordeiro <diogo@fc.up.pt>
+ */
+public final class
+PointToPointQuery
+{
+    private static final int INF = 1000000000; // 1e9 to avoid overflow
+    private static final int FORWARD = 0, BACKWARD = 1;
+
+    private final CsrGraph[] graph = new CsrGraph[2];   // the graph and its transpose
+    private final int[][] weight = new int[2][];
+    private final int[][] dist = new int[2][];
+    private final int[][] come_from = new int[2][];     // parent in each search tree
+    private final int[][] stamp = new int[2][];         // query that last wrote dist
+    private final IndexedDaryHeap[] to_explore = new IndexedDaryHeap[2];
+    private int query, settled;         // current query, #nodes it settled
+    private int last_t, meeting;        // target and meeting node of the last query
+
+    // O(N + #Edges) to construct the structure (the transpose is built here)
+    public
+    PointToPointQuery (CsrGraph g)
+    {
+        this(g, g.transpose());
+    }
+    public
+    PointToPointQuery (CsrGraph g, CsrGraph g_transpose)
+    {
+        this.graph[FORWARD] = g;
+        this.graph[BACKWARD] = g_transpose;
+        for (int d = FORWARD; d <= BACKWARD; ++d) {
+            this.weight[d] = this.graph[d].int_weights(0);
+            this.dist[d] = new int[g.n_nodes];
+            this.come_from[d] = new int[g.n_nodes];
+            this.stamp[d] = new int[g.n_nodes];
+            this.to_explore[d] = new IndexedDaryHeap(g.n_nodes);
+        }
+        this.query = 0;
+        this.meeting = -1;
+    }
+
+    // O(1) amortised to start a new query
+    private void
+    start (int s, int t)
+    {
+        if (++this.query == Integer.MAX_VALUE) {
+            Arrays.fill(this.stamp[FORWARD], 0);
+            Arrays.fill(this.stamp[BACKWARD], 0);
+            this.query = 1;
+        }
+        this.to_explore[FORWARD].clear();
+        this.to_explore[BACKWARD].clear();
+        this.last_t = t;
+        this.meeting = -1;
+        this.settled = 0;
+    }
+
+    private int
+    dist (int d, int u)
+    {
+        return this.stamp[d][u] == this.query ? this.dist[d][u] : INF;
+    }
+
+    private void
+    set (int d, int u, int dist, int come_from)
+    {
+        this.stamp[d][u] = this.query;
+        this.dist[d][u] = dist;
+        this.come_from[d][u] = come_from;
+    }
+
+    // O(#Edges + N*lg(N)) worst case, less the closer t is to s
+    public int
+    int_dijkstra(int s, int t) {
+        this.start(s, t);
+        int[] offsets = this.graph[FORWARD].offsets, targets = this.graph[FORWARD].targets;
+        int[] weight = this.weight[FORWARD];
+        IndexedDaryHeap to_explore = this.to_explore[FORWARD];
+
+        this.set(FORWARD, s, 0, -1);
+        to_explore.push(s, 0);
+
+        while (!to_explore.is_empty()) {
+            int u = to_explore.poll();
+            ++this.settled;
+            // Assert: u.distance is the true shortest distance from s to u
+            if (u == t) {
+                this.meeting = t;
+                return this.dist[FORWARD][t];
+            }
+            for (int e = offsets[u]; e < offsets[u + 1]; ++e) {
+                int w = targets[e];
+                int dist_w = this.dist[FORWARD][u] + weight[e];
+                if (dist_w < this.dist(FORWARD, w)) {
+                    this.set(FORWARD, w, dist_w, u);
+                    to_explore.push(w, dist_w);
+                }
+            }
+        }
+
+        // t is unreachable
+        return INF;
+    }
+
+    // O(#Edges + N*lg(N)) worst case, typically about half of the nodes
+    // that int_dijkstra(s, t) settles
+    public int
+    int_bidirectional_dijkstra(int s, int t) {
+        this.start(s, t);
+        this.set(FORWARD, s, 0, -1);
+        this.to_explore[FORWARD].push(s, 0);
+        this.set(BACKWARD, t, 0, -1);
+        this.to_explore[BACKWARD].push(t, 0);
+        int best = s == t ? 0 : INF; // shortest s-t distance seen so far
+        if (s == t) this.meeting = s;
+
+        while (!this.to_explore[FORWARD].is_empty() && !this.to_explore[BACKWARD].is_empty()) {
+            // Once both frontiers together reach past best, best is optimal
+            if (this.to_explore[FORWARD].peek_key() + this.to_explore[BACKWARD].peek_key() >= best) {
+                break;
+            }
+
+            // Grow the search with the smaller frontier
+            int d = this.to_explore[FORWARD].size() <= this.to_explore[BACKWARD].size() ? FORWARD : BACKWARD;
+            int other = 1 - d;
+            int[] offsets = this.graph[d].offsets, targets = this.graph[d].targets;
+            int[] weight = this.weight[d];
+
+            int u = this.to_explore[d].poll();
+            ++this.settled;
+            for (int e = offsets[u]; e < offsets[u + 1]; ++e) {
+                int w = targets[e];
+                int dist_w = this.dist[d][u] + weight[e];
+                if (dist_w < this.dist(d, w)) {
+                    this.set(d, w, dist_w, u);
+                    this.to_explore[d].push(w, dist_w);
+                    // Did the searches meet at w with a better path?
+                    int through_w = dist_w + this.dist(other, w);
+                    if (through_w < best) {
+                        best = through_w;
+                        this.meeting = w;
+                    }
+                }
+            }
+        }
+
+        return best;
+    }
+
+    // O(#Edges + N*lg(N)) worst case, as few nodes as the heuristic allows
+    // heuristic.applyAsInt(u, t) must be a lower bound on the distance u->t
+    public int
+    int_astar(int s, int t, IntBinaryOperator heuristic) {
+        this.start(s, t);
+        int[] offsets = this.graph[FORWARD].offsets, targets = this.graph[FORWARD].targets;
+        int[] weight = this.weight[FORWARD];
+        IndexedDaryHeap to_explore = this.to_explore[FORWARD];
+
+        this.set(FORWARD, s, 0, -1);
+        to_explore.push(s, heuristic.applyAsInt(s, t));
+
+        while (!to_explore.is_empty()) {
+            int u = to_explore.poll();
+            ++this.settled;
+            if (u == t) {
+                this.meeting = t;
+                return this.dist[FORWARD][t];
+            }
+            for (int e = offsets[u]; e < offsets[u + 1]; ++e) {
+                int w = targets[e];
+                int dist_w = this.dist[FORWARD][u] + weight[e];
+                if (dist_w < this.dist(FORWARD, w)) {
+                    this.set(FORWARD, w, dist_w, u);
+                    // Nodes may be reopened if the heuristic isn't consistent
+                    to_explore.push(w, (long) dist_w + heuristic.applyAsInt(w, t));
+                }
+            }
+        }
+
+        // t is unreachable
+        return INF;
+    }
+
+    // O(path length) to rebuild the path found by the last query, s first
+    // and t last; empty if t was unreachable
+    public int[]
+    path ()
+    {
+        if (this.meeting < 0) {
+            return new int[0];
+        }
+        int length = 0;
+        for (int u = this.meeting; u != -1; u = this.come_from[FORWARD][u]) ++length;
+        int forward_length = length;
+        if (this.meeting != this.last_t) {
+            for (int u = this.meeting; u != this.last_t; u = this.come_from[BACKWARD][u]) ++length;
+        }
+
+        int[] path = new int[length];
+        int i = forward_length;
+        for (int u = this.meeting; u != -1; u = this.come_from[FORWARD][u]) {
+            path[--i] = u;
+        }
+        i = forward_length;
+        for (int u = this.meeting; u != this.last_t; ) {
+            u = this.come_from[BACKWARD][u];
+            path[i++] = u;
+        }
+        return path;
+    }
+
+    // O(1) to know how many nodes the last query settled
+    public int
+    settled ()
+    {
+        return this.settled;
+    }
+}
@@ -0,0 +1,117 @@
+import java.util.*;
+
+/**
+ * The RadixHeap class is a monotone priority queue for non-negative int
+ * priorities. Bucket 0 holds the priorities equal to the last polled one
+ * and bucket i > 0 those whose highest bit differing from it is bit i-1,
+ * so a priority only ever moves to lower buckets: O(lg C) amortised per
+ * node, C being the largest edge weight, whatever the weights' spread.
+ * Decreasing a priority queues a new entry; stale entries are dropped
+ * when they are met.
+ * @author Diogo Peralta Cordeiro <diogo@fc.up.pt>
+ */
+public final class
+RadixHeap
+        implements MonotoneQueue
+{
+    private static final int N_BUCKETS = 33;
+
+    private final int[][] nodes = new int[N_BUCKETS][];
+    private final int[][] keys = new int[N_BUCKETS][];
+    private final int[] length = new int[N_BUCKETS];
+    private final int[] key;  // node -> current priority, -1 if not queued
+    private int last, size;   // last polled priority, #queued nodes
+
+    // O(n) to construct the structure
+    public
+    RadixHeap (int n_nodes)
+    {
+        for (int b = 0; b < N_BUCKETS; ++b) {
+            this.nodes[b] = new int[4];
+            this.keys[b] = new int[4];
+        }
+        this.key = new int[n_nodes];
+        Arrays.fill(this.key, -1);
+        this.last = 0;
+        this.size = 0;
+    }
+
+    private int
+    bucket (int key)
+    {
+        return key == this.last ? 0 : 32 - Integer.numberOfLeadingZeros(key ^ this.last);
+    }
+
+    private void
+    append (int b, int u, int key)
+    {
+        if (this.length[b] == this.nodes[b].length) {
+            this.nodes[b] = Arrays.copyOf(this.nodes[b], 2 * this.length[b]);
+            this.keys[b] = Arrays.copyOf(this.keys[b], 2 * this.length[b]);
+        }
+        this.nodes[b][this.length[b]] = u;
+        this.keys[b][this.length[b]] = key;
+        ++this.length[b];
+    }
+
+    // O(1) amortised to queue a node, or to decrease its priority
+    public void
+    push (int u, int key)
+    {
+        if (key < this.last) {
+            throw new IllegalArgumentException("Priority " + key + " is below the last polled one.");
+        }
+        if (this.key[u] < 0) {
+            ++this.size;
+        }
+        this.key[u] = key;
+        this.append(this.bucket(key), u, key);
+    }
+
+    // O(lg C) amortised to remove and return the node with the least priority
+    public int
+    poll ()
+    {
+        if (this.size == 0) throw new NoSuchElementException();
+        while (true) {
+            // Drain bucket 0, dropping stale entries
+            while (this.length[0] > 0) {
+                int i = --this.length[0];
+                int u = this.nodes[0][i];
+                if (this.key[u] == this.keys[0][i]) {
+                    this.key[u] = -1;
+                    --this.size;
+                    return u;
+                }
+            }
+
+            // Find the least live priority in the first non-empty bucket
+            int b = 1;
+            while (this.length[b] == 0) ++b;
+            int min = Integer.MAX_VALUE;
+            for (int i = 0; i < this.length[b]; ++i) {
+                if (this.key[this.nodes[b][i]] == this.keys[b][i]) {
+                    min = Math.min(min, this.keys[b][i]);
+                }
+            }
+
+            // Redistribute the bucket around the new last priority
+            int n = this.length[b];
+            this.length[b] = 0;
+            if (min == Integer.MAX_VALUE) continue; // only stale entries
+            this.last = min;
+            for (int i = 0; i < n; ++i) {
+                int u = this.nodes[b][i], key = this.keys[b][i];
+                if (this.key[u] == key) {
+                    this.append(this.bucket(key), u, key);
+                }
+            }
+        }
+    }
+
+    public boolean
+    is_empty ()
+    {
+        return this.size == 0;
+    }
+}
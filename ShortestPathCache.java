@@ -0,0 +1,215 @@
+import java.util.*;
+
+/**
+ * The ShortestPathCache class keeps the int_dijkstra results of a
+ * DirectedWeightedGraph per source, so that asking again for the same
+ * source between two changes of the graph costs O(1).
+ * Results are tagged with the graph's version(), which link, unlink and
+ * delete_node bump: a result from an older version is never returned, and
+ * the first lookup after a change drops all of them (an invalidation).
+ * The least recently used results are evicted once there are more than
+ * max_entries of them or their estimated footprint exceeds max_bytes.
+ * Results are handed out as read-only Paths views, shared by every caller.
+ * Lookups are thread-safe, as long as nobody changes the graph meanwhile.
+ * @author Diogo Peralta Cordeiro <diogo@fc.up.pt>
+ */
+public final class
+ShortestPathCache
+{
+    private final DirectedWeightedGraph<?> g;
+    private final int max_entries;
+    private final long max_bytes;
+    // source -> result, in access order
+    private final LinkedHashMap<Integer, Paths> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long version, bytes;
+    private long hits, misses, evictions, invalidations;
+
+    // O(1) to construct the structure
+    public
+    ShortestPathCache (DirectedWeightedGraph<?> g, int max_entries, long max_bytes)
+    {
+        if (max_entries < 1 || max_bytes < 1) {
+            throw new IllegalArgumentException("A cache needs room for at least one result.");
+        }
+        this.g = g;
+        this.max_entries = max_entries;
+        this.max_bytes = max_bytes;
+        this.version = g.version();
+    }
+
+    /**
+     * A read-only view of an int_dijkstra result.
+     */
+    public static final class
+    Paths
+    {
+        public final int source;
+        public final long version; // graph version it was computed at
+        private final int[] dist;
+        private final List<List<Integer>> come_from;
+        private final long bytes;
+
+        @SuppressWarnings("unchecked")
+        private
+        Paths (int source, long version, List<Object> result)
+        {
+            this.source = source;
+            this.version = version;
+            this.dist = (int[]) result.get(0);
+            List<List<Integer>> come_from = (List<List<Integer>>) result.get(1);
+            // Rough footprint: the arrays, a LinkedList per node and a node
+            // plus an Integer per predecessor
+            long bytes = 64 + 4L * this.dist.length;
+            List<List<Integer>> read_only = new ArrayList<>(come_from.size());
+            for (List<Integer> predecessors : come_from) {
+                bytes += 72 + 40L * predecessors.size();
+                read_only.add(Collections.unmodifiableList(predecessors));
+            }
+            this.come_from = Collections.unmodifiableList(read_only);
+            this.bytes = bytes;
+        }
+
+        // O(1) to get the number of nodes
+        public int
+        n_nodes ()
+        {
+            return this.dist.length;
+        }
+
+        // O(1) to get the distance from source to v, 1e9 if unreachable
+        public int
+        dist (int v)
+        {
+            return this.dist[v];
+        }
+
+        // O(N) to get a private copy of the distances
+        public int[]
+        dist ()
+        {
+            return this.dist.clone();
+        }
+
+        // O(1) to get the predecessors of v on its shortest paths
+        public List<Integer>
+        come_from (int v)
+        {
+            return this.come_from.get(v);
+        }
+
+        // O(1) to get all predecessor lists, indexed by node
+        public List<List<Integer>>
+        come_from ()
+        {
+            return this.come_from;
+        }
+    }
+
+    // O(1) on a hit, O(int_dijkstra) on a miss
+    public Paths
+    int_dijkstra (int s)
+    {
+        long version;
+        synchronized (this) {
+            this.invalidate_if_stale();
+            Paths cached = this.entries.get(s);
+            if (cached != null) {
+                ++this.hits;
+                return cached;
+            }
+            ++this.misses;
+            version = this.version;
+        }
+
+        // Compute without holding the lock
+        Paths computed = new Paths(s, version, this.g.int_dijkstra(s));
+
+        synchronized (this) {
+            this.invalidate_if_stale();
+            if (computed.version != this.version) {
+                return computed; // the graph changed meanwhile, don't keep it
+            }
+            Paths raced = this.entries.get(s);
+            if (raced != null) {
+                return raced;
+            }
+            this.entries.put(s, computed);
+            this.bytes += computed.bytes;
+            this.evict();
+        }
+        return computed;
+    }
+
+    // Drops every result if the graph changed since they were computed
+    private void
+    invalidate_if_stale ()
+    {
+        long current = this.g.version();
+        if (current != this.version) {
+            this.invalidations += this.entries.size();
+            this.entries.clear();
+            this.bytes = 0;
+            this.version = current;
+        }
+    }
+
+    // Evicts least recently used results, keeping at least the newest one
+    private void
+    evict ()
+    {
+        Iterator<Paths> lru = this.entries.values().iterator();
+        while (this.entries.size() > 1
+                && (this.entries.size() > this.max_entries || this.bytes > this.max_bytes)) {
+            Paths oldest = lru.next();
+            lru.remove();
+            this.bytes -= oldest.bytes;
+            ++this.evictions;
+        }
+    }
+
+    // O(entries) to drop every result
+    public synchronized void
+    clear ()
+    {
+        this.entries.clear();
+        this.bytes = 0;
+    }
+
+    public synchronized int
+    size ()
+    {
+        return this.entries.size();
+    }
+
+    // Estimated footprint of the cached results, in bytes
+    public synchronized long
+    bytes ()
+    {
+        return this.bytes;
+    }
+
+    public synchronized long
+    hits ()
+    {
+        return this.hits;
+    }
+
+    public synchronized long
+    misses ()
+    {
+        return this.misses;
+    }
+
+    public synchronized long
+    evictions ()
+    {
+        return this.evictions;
+    }
+
+    // #results dropped because the graph changed
+    public synchronized long
+    invalidations ()
+    {
+        return this.invalidations;
+    }
+}
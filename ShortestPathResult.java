@@ -0,0 +1,363 @@
+import java.util.*;
+
+/**
+ * The ShortestPathResult class holds the shortest paths from a source s of
+ * a graph with non-negative integral weights (weight column 0): dist(v),
+ * 1e9 if v is unreachable, and the predecessor DAG, made of every tight
+ * edge u->v (dist(u) + c(u->v) = dist(v)), that is, the come_from lists of
+ * int_dijkstra (but for zero-weight edges back into the source, which no
+ * shortest path takes).
+ * The DAG is kept in CSR form over primitive arrays: the predecessors of v
+ * are preds[pred_offsets[v] .. pred_offsets[v+1]-1], the one Dijkstra's
+ * algorithm settled v from first (so first predecessors lead back to the
+ * source, even around zero-weight cycles), the others in edge order. That is
+ * 4 bytes per node and per tight edge, where N LinkedLists of boxed
+ * Integers take some 40 bytes per node and per predecessor.
+ * Paths are never stored: reverse_path(v) walks one back from v, paths(v)
+ * enumerates every shortest (simple) path to v one at a time, and
+ * n_paths(v) counts them, saturating at Long.MAX_VALUE (which also stands
+ * for "infinitely many", behind a zero-weight cycle).
+ * main() checks, on graphs read from the standard input, that a shortest
+ * path walked back from every node reaches the source in fewer than N
+ * steps, zero-weight cycles included.
+ * @author Diogo Peralta Cordeiro <diogo@fc.up.pt>
+ */
+public final class
+ShortestPathResult
+{
+    private static final int INF = 1000000000; // 1e9 to avoid overflow
+
+    public final int source, n_nodes;
+    private final int[] dist;
+    private final int[] pred_offsets, preds;
+    private long[] n_paths; // computed on the first n_paths() call
+
+    private
+    ShortestPathResult (int source, int[] dist, int[] pred_offsets, int[] preds)
+    {
+        this.source = source;
+        this.n_nodes = dist.length;
+        this.dist = dist;
+        this.pred_offsets = pred_offsets;
+        this.preds = preds;
+    }
+
+    // O(#Edges + N*lg(N))
+    public static ShortestPathResult
+    int_dijkstra (CsrGraph g, int s)
+    {
+        ShortestPathWorkspace ws = new ShortestPathWorkspace(g);
+        ws.run(s);
+        int[] dist = new int[g.n_nodes];
+        ws.copy_dist(dist, 0);
+
+        // Keep the tight edges, by target (counting sort), each node's
+        // parent in Dijkstra's tree first
+        int[] weight = g.int_weights(0);
+        int[] pred_offsets = new int[g.n_nodes + 1];
+        for (int u = 0; u < g.n_nodes; ++u) {
+            if (dist[u] == INF) continue;
+            for (int e = g.offsets[u]; e < g.offsets[u + 1]; ++e) {
+                int w = g.targets[e];
+                if (w != s && dist[u] + weight[e] == dist[w]) ++pred_offsets[w + 1];
+            }
+        }
+        for (int v = 0; v < g.n_nodes; ++v) {
+            pred_offsets[v + 1] += pred_offsets[v];
+        }
+        int[] fill = Arrays.copyOf(pred_offsets, g.n_nodes), preds = new int[pred_offsets[g.n_nodes]];
+        int[] parent = new int[g.n_nodes];
+        for (int v = 0; v < g.n_nodes; ++v) {
+            parent[v] = v == s ? -1 : ws.come_from(v);
+            if (parent[v] >= 0) preds[fill[v]++] = parent[v];
+        }
+        for (int u = 0; u < g.n_nodes; ++u) {
+            if (dist[u] == INF) continue;
+            for (int e = g.offsets[u]; e < g.offsets[u + 1]; ++e) {
+                int w = g.targets[e];
+                if (w == s || dist[u] + weight[e] != dist[w]) continue;
+                if (u == parent[w]) {
+                    parent[w] = -1; // already first
+                } else {
+                    preds[fill[w]++] = u;
+                }
+            }
+        }
+
+        return new ShortestPathResult(s, dist, pred_offsets, preds);
+    }
+    public static ShortestPathResult
+    int_dijkstra (DirectedWeightedGraph<?> g, int s)
+    {
+        return int_dijkstra(g.freeze(), s);
+    }
+
+    // O(N + #predecessors) to compact an int_dijkstra result (whose
+    // come_from lists start with the predecessor that set dist)
+    public static ShortestPathResult
+    of (int s, List<Object> int_dijkstra)
+    {
+        int[] dist = ((int[]) int_dijkstra.get(0)).clone();
+        @SuppressWarnings("unchecked")
+        List<List<Integer>> come_from = (List<List<Integer>>) int_dijkstra.get(1);
+        int[] pred_offsets = new int[dist.length + 1];
+        for (int v = 0; v < dist.length; ++v) {
+            pred_offsets[v + 1] = pred_offsets[v] + (v == s ? 0 : come_from.get(v).size());
+        }
+        int[] preds = new int[pred_offsets[dist.length]];
+        for (int v = 0, i = 0; v < dist.length; ++v) {
+            if (v == s) continue;
+            for (int u : come_from.get(v)) {
+                preds[i++] = u;
+            }
+        }
+        return new ShortestPathResult(s, dist, pred_offsets, preds);
+    }
+
+    // O(1) to get the distance from the source to v, 1e9 if unreachable
+    public int
+    dist (int v)
+    {
+        return this.dist[v];
+    }
+
+    // O(1) to know if v can be reached from the source
+    public boolean
+    reachable (int v)
+    {
+        return this.dist[v] != INF;
+    }
+
+    // O(1) to get v's number of predecessors on its shortest paths
+    public int
+    n_predecessors (int v)
+    {
+        return this.pred_offsets[v + 1] - this.pred_offsets[v];
+    }
+
+    // O(1) to get v's i-th predecessor, 0 <= i < n_predecessors(v)
+    public int
+    predecessor (int v, int i)
+    {
+        return this.preds[this.pred_offsets[v] + i];
+    }
+
+    // O(1) to start walking one shortest path back from v to the source
+    // (first predecessors first); empty if v is unreachable
+    public PrimitiveIterator.OfInt
+    reverse_path (int v)
+    {
+        return new PrimitiveIterator.OfInt() {
+            private int next = ShortestPathResult.this.reachable(v) ? v : -1;
+
+            public boolean
+            hasNext ()
+            {
+                return this.next >= 0;
+            }
+
+            public int
+            nextInt ()
+            {
+                if (this.next < 0) throw new NoSuchElementException();
+                int u = this.next;
+                this.next = u == ShortestPathResult.this.source || ShortestPathResult.this.n_predecessors(u) == 0
+                        ? -1 : ShortestPathResult.this.predecessor(u, 0);
+                return u;
+            }
+        };
+    }
+
+    // O(length) to get one shortest path from the source to v, null if none
+    public int[]
+    path (int v)
+    {
+        if (!this.reachable(v)) return null;
+        int length = 0;
+        for (PrimitiveIterator.OfInt back = this.reverse_path(v); back.hasNext(); back.nextInt()) ++length;
+        int[] path = new int[length];
+        PrimitiveIterator.OfInt back = this.reverse_path(v);
+        for (int i = length - 1; i >= 0; --i) {
+            path[i] = back.nextInt();
+        }
+        return path;
+    }
+
+    // Enumerates every shortest simple path from the source to v, each as
+    // a new array from the source to v; only the current path is kept
+    // Behind a zero-weight cycle there are finitely many simple paths but
+    // infinitely many shortest walks, so n_paths(v) says Long.MAX_VALUE
+    // there while this enumerates fewer
+    public Iterator<int[]>
+    paths (int v)
+    {
+        return new Iterator<int[]>() {
+            // DFS back from v: stack[d] is the node at depth d, choice[d]
+            // the index of the predecessor to try next from it
+            private int[] stack = new int[16], choice = new int[16];
+            private final boolean[] on_path = new boolean[ShortestPathResult.this.n_nodes];
+            private int depth = -1;
+            private boolean ready = false;
+
+            {
+                if (ShortestPathResult.this.reachable(v)) this.push(v);
+            }
+
+            private void
+            push (int u)
+            {
+                if (++this.depth == this.stack.length) {
+                    this.stack = Arrays.copyOf(this.stack, 2 * this.depth);
+                    this.choice = Arrays.copyOf(this.choice, 2 * this.depth);
+                }
+                this.stack[this.depth] = u;
+                this.choice[this.depth] = 0;
+                this.on_path[u] = true;
+            }
+
+            private void
+            pop ()
+            {
+                this.on_path[this.stack[this.depth--]] = false;
+            }
+
+            // Moves the DFS on until the stack holds a whole path
+            private void
+            advance ()
+            {
+                ShortestPathResult r = ShortestPathResult.this;
+                while (this.depth >= 0) {
+                    int u = this.stack[this.depth];
+                    if (u == r.source) {
+                        this.ready = true;
+                        return;
+                    }
+                    int next = -1;
+                    while (this.choice[this.depth] < r.n_predecessors(u)) {
+                        int p = r.predecessor(u, this.choice[this.depth]++);
+                        if (!this.on_path[p]) {
+                            next = p;
+                            break;
+                        }
+                    }
+                    if (next >= 0) {
+                        this.push(next);
+                    } else {
+                        this.pop();
+                    }
+                }
+            }
+
+            public boolean
+            hasNext ()
+            {
+                if (!this.ready) this.advance();
+                return this.ready;
+            }
+
+            public int[]
+            next ()
+            {
+                if (!this.hasNext()) throw new NoSuchElementException();
+                int[] path = new int[this.depth + 1];
+                for (int i = 0; i <= this.depth; ++i) {
+                    path[i] = this.stack[this.depth - i];
+                }
+                this.ready = false;
+                this.pop(); // the source: look for the next way to it
+                return path;
+            }
+        };
+    }
+
+    // O(N + #predecessors) the first time, then O(1), to count the shortest
+    // paths from the source to v (1 for the source, 0 if unreachable)
+    public long
+    n_paths (int v)
+    {
+        if (this.n_paths == null) this.count_paths();
+        return this.n_paths[v];
+    }
+
+    // Kahn's topological order over the DAG, summing the counts of the
+    // predecessors; nodes never freed sit on or behind a zero-weight cycle
+    private void
+    count_paths ()
+    {
+        // Successors, by counting sort of the predecessors
+        int[] succ_offsets = new int[this.n_nodes + 1];
+        for (int u : this.preds) ++succ_offsets[u + 1];
+        for (int u = 0; u < this.n_nodes; ++u) {
+            succ_offsets[u + 1] += succ_offsets[u];
+        }
+        int[] fill = Arrays.copyOf(succ_offsets, this.n_nodes), succs = new int[this.preds.length];
+        for (int v = 0; v < this.n_nodes; ++v) {
+            for (int i = this.pred_offsets[v]; i < this.pred_offsets[v + 1]; ++i) {
+                succs[fill[this.preds[i]]++] = v;
+            }
+        }
+
+        long[] n_paths = new long[this.n_nodes];
+        int[] waiting = new int[this.n_nodes], queue = new int[this.n_nodes];
+        boolean[] counted = new boolean[this.n_nodes];
+        int head = 0, tail = 0;
+        for (int v = 0; v < this.n_nodes; ++v) {
+            waiting[v] = this.n_predecessors(v);
+            if (waiting[v] == 0) queue[tail++] = v;
+        }
+        if (this.reachable(this.source)) n_paths[this.source] = 1;
+        while (head < tail) {
+            int u = queue[head++];
+            counted[u] = true;
+            for (int i = succ_offsets[u]; i < succ_offsets[u + 1]; ++i) {
+                int v = succs[i];
+                n_paths[v] = n_paths[v] > Long.MAX_VALUE - n_paths[u] ? Long.MAX_VALUE : n_paths[v] + n_paths[u];
+                if (--waiting[v] == 0) queue[tail++] = v;
+            }
+        }
+        for (int v = 0; v < this.n_nodes; ++v) {
+            if (!counted[v]) n_paths[v] = Long.MAX_VALUE;
+        }
+        this.n_paths = n_paths;
+    }
+
+    public static void
+    main(String[] args) {
+        Scanner stdin = new Scanner(System.in);
+        while (true) {
+            /* Input */
+            // "N #Edges source", then an edge "u w weight" per line, up to "0 0 0"
+            int n_nodes = stdin.nextInt(),
+                n_edges = stdin.nextInt(),
+                source = stdin.nextInt();
+            if (n_nodes == 0 && n_edges == 0) break;
+            DirectedWeightedGraph<Integer> g = new DirectedWeightedGraph<>(n_nodes, n_edges);
+            for (int i = 0; i < n_edges; ++i) {
+                int u = stdin.nextInt(),
+                    w = stdin.nextInt(),
+                    weight = stdin.nextInt();
+                g.link(u, w, weight);
+            }
+
+            /* Process */
+            ShortestPathResult r = int_dijkstra(g, source);
+            for (int v = 0; v < n_nodes; ++v) {
+                if (!r.reachable(v)) continue;
+                // Walk back at most N steps: a longer walk went round a cycle
+                int steps = 0, last = v;
+                for (PrimitiveIterator.OfInt back = r.reverse_path(v); back.hasNext() && steps <= n_nodes; ++steps) {
+                    last = back.nextInt();
+                }
+                if (steps > n_nodes || last != source) {
+                    throw new AssertionError("The path back from " + v + " doesn't reach " + source + ".");
+                }
+
+                /* Output */
+                System.out.println(v + ": dist " + r.dist(v) + ", path " + Arrays.toString(r.path(v)) + ", " + r.n_paths(v) + " paths");
+            }
+        }
+
+        // That's all folks
+        stdin.close();
+    }
+}
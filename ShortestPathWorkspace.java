@@ -0,0 +1,135 @@
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * The ShortestPathWorkspace class runs Dijkstra's algorithm over a CsrGraph
+ * with non-negative integral weights (weight column 0) again and again,
+ * from one source after another, without allocating anything per run.
+ * Distances and predecessors are stamped with the run that wrote them, so
+ * a new run only resets the nodes it touches: O(touched) rather than O(N).
+ * The results of a run are readable until the next one starts:
+ *  - dist(v), 1e9 if v is unreachable, and come_from(v), v's predecessor
+ *    on one shortest path, -1 if none;
+ *  - settled(i), the reachable nodes in the order they were settled, for
+ *    0 <= i < n_settled().
+ * run_batch() streams the result of each source to a consumer in turn, so
+ * only one is ever alive. Not thread-safe: use one workspace per thread.
+ * @author Diogo Peralta Cordeiro <diogo@fc.up.pt>
+ */
+public final class
+ShortestPathWorkspace
+{
+    private static final int INF = 1000000000; // 1e9 to avoid overflow
+
+    private final CsrGraph g;
+    private final int[] weight;
+    private final int[] dist, come_from, stamp;
+    private final int[] settled; // settle order of the current run
+    private final IndexedDaryHeap to_explore;
+    private int run, n_settled, source;
+
+    // O(N) to construct the structure, once
+    public
+    ShortestPathWorkspace (CsrGraph g)
+    {
+        this.g = g;
+        this.weight = g.int_weights(0);
+        this.dist = new int[g.n_nodes];
+        this.come_from = new int[g.n_nodes];
+        this.stamp = new int[g.n_nodes];
+        this.settled = new int[g.n_nodes];
+        this.to_explore = new IndexedDaryHeap(g.n_nodes);
+        this.run = 0;
+        this.source = -1;
+    }
+
+    // O(#Edges reached + N reached * lg(N)) to find the distances from s
+    public void
+    run(int s) {
+        if (++this.run == Integer.MAX_VALUE) {
+            Arrays.fill(this.stamp, 0);
+            this.run = 1;
+        }
+        this.source = s;
+        this.n_settled = 0;
+        this.to_explore.clear();
+
+        this.stamp[s] = this.run;
+        this.dist[s] = 0;
+        this.come_from[s] = -1;
+        this.to_explore.push(s, 0);
+
+        // Dijkstra's Algorithm
+        int[] offsets = this.g.offsets, targets = this.g.targets;
+        while (!this.to_explore.is_empty()) {
+            int u = this.to_explore.poll();
+            this.settled[this.n_settled++] = u;
+            for (int e = offsets[u]; e < offsets[u + 1]; ++e) {
+                int w = targets[e];
+                int dist_w = this.dist[u] + this.weight[e];
+                if (this.stamp[w] != this.run || dist_w < this.dist[w]) {
+                    this.stamp[w] = this.run;
+                    this.dist[w] = dist_w;
+                    this.come_from[w] = u;
+                    this.to_explore.push(w, dist_w);
+                }
+            }
+        }
+    }
+
+    // Runs from every source in turn, handing this workspace to result
+    // after each run; result must not keep it (or its answers) around
+    public void
+    run_batch(int[] sources, Consumer<ShortestPathWorkspace> result) {
+        for (int s : sources) {
+            this.run(s);
+            result.accept(this);
+        }
+    }
+
+    // O(1) to get the source of the last run
+    public int
+    source ()
+    {
+        return this.source;
+    }
+
+    // O(1) to get the distance from the last source to v
+    public int
+    dist (int v)
+    {
+        return this.stamp[v] == this.run ? this.dist[v] : INF;
+    }
+
+    // O(1) to get v's predecessor on a shortest path from the last source
+    public int
+    come_from (int v)
+    {
+        return this.stamp[v] == this.run ? this.come_from[v] : -1;
+    }
+
+    // O(1) to get how many nodes the last source reaches
+    public int
+    n_settled ()
+    {
+        return this.n_settled;
+    }
+
+    // O(1) to get the i-th node settled by the last run
+    public int
+    settled (int i)
+    {
+        return this.settled[i];
+    }
+
+    // O(N) to copy the distances from the last source into row, at offset
+    public void
+    copy_dist (int[] row, int offset)
+    {
+        Arrays.fill(row, offset, offset + this.g.n_nodes, INF);
+        for (int i = 0; i < this.n_settled; ++i) {
+            int v = this.settled[i];
+            row[offset + v] = this.dist[v];
+        }
+    }
+}
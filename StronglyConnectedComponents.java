@@ -0,0 +1,577 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The StronglyConnectedComponents class splits a directed graph into its
+ * strongly connected components: component[u] is the id of u's component
+ * (0 through n_components-1) and size[c] the number of nodes in component
+ * c.
+ * pearce() is Pearce's path-based variant of Tarjan's algorithm, in one
+ * pass and without the transposed graph: a node's rindex is its DFS index
+ * lowered to the smallest one it reaches, and a node whose rindex stays its
+ * own is the root of a component, made of it and the nodes above it on the
+ * stack. The DFS is iterative, over primitive stacks only as deep as the
+ * graph needs, so long chains never overflow the thread's stack, and the
+ * rindex array becomes the component array. Besides the graph, a run takes
+ * 4 bytes per node for rindex, 13 bytes per level of the DFS (node, next
+ * edge and root flag) and 4 per node waiting on the component stack, so
+ * up to 21 bytes per node on a long chain; pearce() of a DirectedMultiGraph
+ * or a DirectedWeightedGraph first copies it into a CsrGraph.
+ * Components are numbered in the order they complete, a reverse
+ * topological order of the condensation: an edge from component c leads to
+ * c or to a component with a smaller id.
+ * parallel() is the multistep algorithm of Slota, Rajamanickam and
+ * Madduri, on a ForkJoinPool, every step over all the nodes at once:
+ *  1. trimming: a node left with no in-edges or no out-edges from the
+ *     remaining ones is a component on its own, and removing it may trim
+ *     its neighbours in turn;
+ *  2. forward-backward: the nodes both reached from and reaching a pivot
+ *     of high in * out degree make its component, most often the giant;
+ *  3. coloring: every remaining node takes the largest node id that
+ *     reaches it, and a node whose color is its own id gets, as its
+ *     component, the nodes of its color it is reached back from; the
+ *     nodes left are trimmed and colored again until none is left.
+ * Its components are numbered by their smallest node instead, but they are
+ * the same as pearce()'s (and Kosaraju-Sharir's), which same_components()
+ * checks; main() runs both, and Kosaraju-Sharir, on graphs read from the
+ * standard input and fails if they disagree.
+ * @author Diogo Peralta Cordeiro <diogo@fc.up.pt>
+ */
+public final class
+StronglyConnectedComponents
+{
+    public final int n_components;
+    public final int[] component; // node -> component id
+    public final int[] size;      // component id -> #nodes
+
+    // O(N) to count the sizes of already numbered components
+    private
+    StronglyConnectedComponents (int[] component, int n_components)
+    {
+        this.n_components = n_components;
+        this.component = component;
+        this.size = new int[n_components];
+        for (int c : component) {
+            ++this.size[c];
+        }
+    }
+
+    // O(N + #Edges)
+    public static StronglyConnectedComponents
+    pearce (GraphReader g)
+    {
+        int n_nodes = g.n_nodes();
+        int[] rindex = new int[n_nodes]; // 0 while unvisited
+        int index = 1, c = n_nodes - 1;  // completed components get c, N-1 down
+
+        // DFS call stack: node, next edge to follow, root so far
+        int[] call_node = new int[16];
+        long[] call_edge = new long[16];
+        boolean[] call_root = new boolean[16];
+        int depth = 0;
+        // Visited nodes whose component isn't complete yet
+        int[] stack = new int[16];
+        int top = 0;
+
+        for (int s = 0; s < n_nodes; ++s) {
+            if (rindex[s] != 0) continue;
+            rindex[s] = index++;
+            call_node[0] = s;
+            call_edge[0] = g.first_edge(s);
+            call_root[0] = true;
+            depth = 1;
+            while (depth > 0) {
+                int v = call_node[depth - 1];
+                long e = call_edge[depth - 1];
+                if (e < g.first_edge(v + 1)) {
+                    int w = g.target(e);
+                    if (rindex[w] == 0) {
+                        // Descend; the edge is looked at again on return
+                        rindex[w] = index++;
+                        if (depth == call_node.length) {
+                            call_node = Arrays.copyOf(call_node, 2 * depth);
+                            call_edge = Arrays.copyOf(call_edge, 2 * depth);
+                            call_root = Arrays.copyOf(call_root, 2 * depth);
+                        }
+                        call_node[depth] = w;
+                        call_edge[depth] = g.first_edge(w);
+                        call_root[depth] = true;
+                        ++depth;
+                        continue;
+                    }
+                    if (rindex[w] < rindex[v]) {
+                        rindex[v] = rindex[w];
+                        call_root[depth - 1] = false;
+                    }
+                    call_edge[depth - 1] = e + 1;
+                    continue;
+                }
+
+                // Done with v
+                --depth;
+                if (call_root[depth]) {
+                    // v and the nodes above it on the stack make a component
+                    --index;
+                    while (top > 0 && rindex[v] <= rindex[stack[top - 1]]) {
+                        rindex[stack[--top]] = c;
+                        --index;
+                    }
+                    rindex[v] = c--;
+                } else {
+                    if (top == stack.length) stack = Arrays.copyOf(stack, 2 * top);
+                    stack[top++] = v;
+                }
+            }
+        }
+
+        // Components were numbered N-1 down, in completion order
+        for (int u = 0; u < n_nodes; ++u) {
+            rindex[u] = n_nodes - 1 - rindex[u];
+        }
+
+        // That's all folks.
+        return new StronglyConnectedComponents(rindex, n_nodes - 1 - c);
+    }
+    public static StronglyConnectedComponents
+    pearce (DirectedMultiGraph g)
+    {
+        return pearce(g.freeze());
+    }
+    public static StronglyConnectedComponents
+    pearce (DirectedWeightedGraph<?> g)
+    {
+        return pearce(g.freeze());
+    }
+
+    // O((N + #Edges) * k / P), k being the #rounds of coloring and of the
+    // longest BFS, and P the pool's parallelism
+    public static StronglyConnectedComponents
+    parallel (CsrGraph g, ForkJoinPool pool)
+    {
+        int[] in_degree = new int[g.n_nodes], out_degree = new int[g.n_nodes];
+        for (int u = 0; u < g.n_nodes; ++u) {
+            out_degree[u] = g.degree(u);
+        }
+        for (int e = 0; e < g.n_edges; ++e) {
+            ++in_degree[g.targets[e]];
+        }
+        return new Multistep(g, in_degree, out_degree, pool).run();
+    }
+    public static StronglyConnectedComponents
+    parallel (DirectedMultiGraph g, ForkJoinPool pool)
+    {
+        return new Multistep(g.freeze(), g.in_degree, g.out_degree, pool).run();
+    }
+    public static StronglyConnectedComponents
+    parallel (DirectedMultiGraph g)
+    {
+        return parallel(g, ForkJoinPool.commonPool());
+    }
+
+    // The state of one parallel() run. Every array is shared by the tasks,
+    // and a node is claimed (its label set) by exactly one of them
+    private static final class
+    Multistep
+    {
+        private static final int CHUNK = 512; // frontier nodes per task
+
+        private final int n_nodes;
+        private final int[] offsets, targets;      // out-edges
+        private final int[] in_offsets, sources;   // in-edges
+        private final ForkJoinPool pool;
+        private final AtomicIntegerArray label;    // component representative, -1 while live
+        private final AtomicIntegerArray in_live, out_live; // edges from/to live nodes
+        private final AtomicIntegerArray color;
+        private final AtomicIntegerArray stamp;    // round a node was last queued in
+        private int round = 0;
+
+        Multistep (CsrGraph g, int[] in_degree, int[] out_degree, ForkJoinPool pool)
+        {
+            CsrGraph transpose = g.transpose();
+            this.n_nodes = g.n_nodes;
+            this.offsets = g.offsets;
+            this.targets = g.targets;
+            this.in_offsets = transpose.offsets;
+            this.sources = transpose.targets;
+            this.pool = pool;
+            this.label = new AtomicIntegerArray(g.n_nodes);
+            this.in_live = new AtomicIntegerArray(in_degree);
+            this.out_live = new AtomicIntegerArray(out_degree);
+            this.color = new AtomicIntegerArray(g.n_nodes);
+            this.stamp = new AtomicIntegerArray(g.n_nodes);
+            for (int u = 0; u < g.n_nodes; ++u) {
+                this.label.set(u, -1);
+                this.color.set(u, -1);
+            }
+        }
+
+        StronglyConnectedComponents
+        run ()
+        {
+            int[] offsets = this.offsets, targets = this.targets, in_offsets = this.in_offsets, sources = this.sources;
+            AtomicIntegerArray label = this.label, color = this.color, stamp = this.stamp;
+
+            // 1. Trimming
+            this.trim(this.expand(null, (u, trimmed) -> {
+                if ((this.in_live.get(u) == 0 || this.out_live.get(u) == 0) && label.compareAndSet(u, -1, u)) trimmed.add(u);
+            }));
+
+            // 2. Forward-backward from the likeliest member of a giant
+            int[] remaining = this.live();
+            if (remaining.length > 0) {
+                int pivot = this.pivot(remaining);
+                // Forward: the nodes pivot reaches take its color
+                int round = ++this.round;
+                stamp.set(pivot, round);
+                color.set(pivot, pivot);
+                for (int[] frontier = {pivot}; frontier.length > 0; ) {
+                    frontier = this.expand(frontier, (u, reached) -> {
+                        for (int e = offsets[u]; e < offsets[u + 1]; ++e) {
+                            int w = targets[e];
+                            if (label.get(w) == -1 && stamp.get(w) != round && stamp.getAndSet(w, round) != round) {
+                                color.set(w, pivot);
+                                reached.add(w);
+                            }
+                        }
+                    });
+                }
+                // Backward, among them
+                this.trim(this.backward(new int[] {pivot}));
+            }
+
+            // 3. Coloring, until every node has a component
+            for (int[] live = this.live(); live.length > 0; live = this.live()) {
+                int[] all = live;
+                this.expand(all, (u, none) -> color.set(u, u));
+                // Largest ids forward, until no color changes
+                for (int[] frontier = all; frontier.length > 0; ) {
+                    int round = ++this.round;
+                    frontier = this.expand(frontier, (u, raised) -> {
+                        int c = color.get(u);
+                        for (int e = offsets[u]; e < offsets[u + 1]; ++e) {
+                            int w = targets[e];
+                            if (label.get(w) == -1 && color.get(w) < c && color.getAndAccumulate(w, c, Math::max) < c
+                                    && stamp.getAndSet(w, round) != round) {
+                                raised.add(w);
+                            }
+                        }
+                    });
+                }
+                int[] roots = this.expand(all, (u, own) -> {
+                    if (color.get(u) == u) own.add(u);
+                });
+                this.trim(this.backward(roots));
+            }
+
+            // Number the components by their smallest node
+            int[] id = new int[this.n_nodes], component = new int[this.n_nodes];
+            Arrays.fill(id, -1);
+            int n_components = 0;
+            for (int u = 0; u < this.n_nodes; ++u) {
+                int representative = label.get(u);
+                if (id[representative] < 0) id[representative] = n_components++;
+                component[u] = id[representative];
+            }
+
+            // That's all folks.
+            return new StronglyConnectedComponents(component, n_components);
+        }
+
+        // Pivot score: the in * out degree left
+        private long
+        score (int u)
+        {
+            return (long) this.in_live.get(u) * this.out_live.get(u);
+        }
+
+        // O(N/P) to pick the first live node of best score: the first best
+        // of every chunk, then the first best of those
+        private int
+        pivot (int[] live)
+        {
+            int[] best = this.expand(live, (u, first) -> {
+                if (first.size == 0) {
+                    first.add(u);
+                } else if (this.score(u) > this.score(first.data[0])) {
+                    first.data[0] = u;
+                }
+            });
+            int pivot = best[0];
+            for (int u : best) {
+                if (this.score(u) > this.score(pivot)) pivot = u;
+            }
+            return pivot;
+        }
+
+        // O(N/P) to list the nodes without a component yet
+        private int[]
+        live ()
+        {
+            return this.expand(null, (u, live) -> {
+                if (this.label.get(u) == -1) live.add(u);
+            });
+        }
+
+        // Gives every root the nodes of its color it is reached back from,
+        // level by level; returns all the nodes labelled
+        private int[]
+        backward (int[] roots)
+        {
+            int[] in_offsets = this.in_offsets, sources = this.sources;
+            AtomicIntegerArray label = this.label, color = this.color;
+            IntBuffer labelled = new IntBuffer();
+            int[] frontier = this.expand(roots, (r, claimed) -> {
+                if (label.compareAndSet(r, -1, r)) claimed.add(r);
+            });
+            while (frontier.length > 0) {
+                labelled.add_all(frontier);
+                frontier = this.expand(frontier, (w, reached) -> {
+                    int c = color.get(w);
+                    for (int e = in_offsets[w]; e < in_offsets[w + 1]; ++e) {
+                        int u = sources[e];
+                        if (color.get(u) == c && label.get(u) == -1 && label.compareAndSet(u, -1, c)) reached.add(u);
+                    }
+                });
+            }
+            return Arrays.copyOf(labelled.data, labelled.size);
+        }
+
+        // Removes the (already labelled) nodes from the edge counts of their
+        // live neighbours (the others' don't matter anymore), then trims the
+        // nodes this leaves without in- or out-edges, and so on
+        private void
+        trim (int[] removed)
+        {
+            int[] offsets = this.offsets, targets = this.targets, in_offsets = this.in_offsets, sources = this.sources;
+            AtomicIntegerArray label = this.label, in_live = this.in_live, out_live = this.out_live;
+            while (removed.length > 0) {
+                removed = this.expand(removed, (u, trimmed) -> {
+                    for (int e = offsets[u]; e < offsets[u + 1]; ++e) {
+                        int w = targets[e];
+                        if (label.get(w) == -1 && in_live.decrementAndGet(w) == 0 && label.compareAndSet(w, -1, w)) trimmed.add(w);
+                    }
+                    for (int e = in_offsets[u]; e < in_offsets[u + 1]; ++e) {
+                        int w = sources[e];
+                        if (label.get(w) == -1 && out_live.decrementAndGet(w) == 0 && label.compareAndSet(w, -1, w)) trimmed.add(w);
+                    }
+                });
+            }
+        }
+
+        // Runs visit on every node of from (on every node, if from is null),
+        // in parallel chunks of CHUNK nodes, each gathering what it emits in
+        // a buffer of its own; returns all of it, in from's order
+        private int[]
+        expand (int[] from, Visit visit)
+        {
+            int length = from != null ? from.length : this.n_nodes;
+            IntBuffer[] emitted = new IntBuffer[(length + CHUNK - 1) / CHUNK];
+            this.pool.invoke(new Expand(from, length, visit, emitted, 0, emitted.length));
+            int size = 0;
+            for (IntBuffer buffer : emitted) size += buffer.size;
+            int[] all = new int[size];
+            size = 0;
+            for (IntBuffer buffer : emitted) {
+                System.arraycopy(buffer.data, 0, all, size, buffer.size);
+                size += buffer.size;
+            }
+            return all;
+        }
+    }
+
+    private interface
+    Visit
+    {
+        void visit (int u, IntBuffer emit);
+    }
+
+    // Visits the chunks [lo, hi) of an expand(), splitting the range in
+    // halves down to one chunk
+    private static final class
+    Expand
+            extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        private static final int CHUNK = Multistep.CHUNK;
+
+        private final int[] from;
+        private final int length;
+        private final Visit visit;
+        private final IntBuffer[] emitted;
+        private final int lo, hi;
+
+        Expand (int[] from, int length, Visit visit, IntBuffer[] emitted, int lo, int hi)
+        {
+            this.from = from;
+            this.length = length;
+            this.visit = visit;
+            this.emitted = emitted;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void
+        compute ()
+        {
+            if (this.hi - this.lo > 1) {
+                int mid = (this.lo + this.hi) >>> 1;
+                invokeAll(new Expand(this.from, this.length, this.visit, this.emitted, this.lo, mid),
+                          new Expand(this.from, this.length, this.visit, this.emitted, mid, this.hi));
+                return;
+            }
+
+            for (int c = this.lo; c < this.hi; ++c) {
+                IntBuffer buffer = new IntBuffer();
+                for (int k = c * CHUNK, end = Math.min(this.length, k + CHUNK); k < end; ++k) {
+                    this.visit.visit(this.from != null ? this.from[k] : k, buffer);
+                }
+                this.emitted[c] = buffer;
+            }
+        }
+    }
+
+    // Growable int array
+    private static final class
+    IntBuffer
+    {
+        int[] data = new int[16];
+        int size = 0;
+
+        void
+        add (int x)
+        {
+            if (this.size == this.data.length) {
+                this.data = Arrays.copyOf(this.data, 2 * this.size);
+            }
+            this.data[this.size++] = x;
+        }
+
+        void
+        add_all (int[] xs)
+        {
+            if (this.size + xs.length > this.data.length) {
+                this.data = Arrays.copyOf(this.data, Math.max(2 * this.data.length, this.size + xs.length));
+            }
+            System.arraycopy(xs, 0, this.data, this.size, xs.length);
+            this.size += xs.length;
+        }
+    }
+
+    // O(N) to know if other splits the same graph into the same components,
+    // whatever their ids
+    public boolean
+    same_components (StronglyConnectedComponents other)
+    {
+        if (this.component.length != other.component.length || this.n_components != other.n_components) return false;
+        int[] match = new int[this.n_components];
+        Arrays.fill(match, -1);
+        for (int u = 0; u < this.component.length; ++u) {
+            int c = this.component[u];
+            if (match[c] < 0) match[c] = other.component[u];
+            if (match[c] != other.component[u]) return false;
+        }
+        return true;
+    }
+
+    // O(1) to know if u and w are in the same component
+    public boolean
+    connected (int u, int w)
+    {
+        return this.component[u] == this.component[w];
+    }
+
+    /* Checker */
+
+    // O(N + #Edges) Kosaraju-Sharir, as in the UVa 11709 solution, for
+    // reference: a DFS of g leaves its nodes in finishing order, then every
+    // DFS tree of g_transpose, taken in reverse finishing order, is a
+    // component (the DFS is recursive, so keep the graphs shallow)
+    private static StronglyConnectedComponents
+    kosaraju_sharir (DirectedMultiGraph g, DirectedMultiGraph g_transpose)
+    {
+        // DFS visit the graph
+        ArrayDeque<Integer> dfs_finished_stack = new ArrayDeque<>();
+        for (int v = 0; v < g.n_nodes; ++v) {
+            if (!g.seen[v]) {
+                dfs_visit(g, v, dfs_finished_stack, null, 0);
+            }
+        }
+
+        // DFS visit in transposed graph using dfs_finished_stack seq
+        int[] component = new int[g.n_nodes];
+        int number_of_scc = 0;
+        while (!dfs_finished_stack.isEmpty()) {
+            int v = dfs_finished_stack.removeFirst();
+
+            // New component is being discovered
+            if (!g_transpose.seen[v]) {
+                dfs_visit(g_transpose, v, null, component, number_of_scc++);
+            }
+        }
+
+        // That's all folks.
+        return new StronglyConnectedComponents(component, number_of_scc);
+    }
+
+    // Marks every node u reaches as seen, filling dfs_finished_stack (if
+    // given) in finishing order and component (if given) with c
+    private static void
+    dfs_visit (DirectedMultiGraph g, int u, ArrayDeque<Integer> dfs_finished_stack, int[] component, int c)
+    {
+        g.seen[u] = true;
+        if (component != null) {
+            component[u] = c;
+        }
+
+        for (int w : g.edges(u)) {
+            if (!g.seen[w]) {
+                dfs_visit(g, w, dfs_finished_stack, component, c);
+            }
+        }
+
+        // Check if a dfs_finished_stack was supplied to be filled
+        if (dfs_finished_stack != null) {
+            dfs_finished_stack.addFirst(u);
+        }
+    }
+
+    public static void
+    main(String[] args) {
+        Scanner stdin = new Scanner(System.in);
+        while (true) {
+            /* Input */
+            // "N #Edges", then an edge "u w" per line, up to "0 0"
+            int n_nodes = stdin.nextInt(),
+                n_edges = stdin.nextInt();
+            if (n_nodes == 0 && n_edges == 0) break;
+            DirectedMultiGraph g = new DirectedMultiGraph(n_nodes, true),
+                    g_transpose = new DirectedMultiGraph(n_nodes, true);
+            for (int i = 0; i < n_edges; ++i) {
+                int u = stdin.nextInt(),
+                    w = stdin.nextInt();
+                g.link_first(u, w);
+                g_transpose.link_first(w, u);
+            }
+
+            /* Process */
+            StronglyConnectedComponents pearce = pearce(g),
+                    parallel = parallel(g),
+                    reference = kosaraju_sharir(g, g_transpose);
+            if (!pearce.same_components(reference)) {
+                throw new AssertionError("pearce() and Kosaraju-Sharir disagree.");
+            }
+            if (!parallel.same_components(reference)) {
+                throw new AssertionError("parallel() and Kosaraju-Sharir disagree.");
+            }
+
+            /* Output */
+            System.out.println(pearce.n_components);
+        }
+
+        // That's all folks
+        stdin.close();
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * The UnionFind class is a disjoint-set forest over the nodes 0 through N-1,
+ * with union by size and path halving, over primitive arrays.
+ * find() and union() are O(alpha(N)) amortised.
+ * Not thread-safe, except for concurrent calls to find_root(), which only
+ * reads.
+ * @author Diogo Peralta Cordeiro <diogo@fc.up.pt>
+ */
+public final class
+UnionFind
+{
+    private final int[] parent, size;
+    private int n_sets;
+
+    // O(n) to construct the structure
+    public
+    UnionFind (int n_nodes)
+    {
+        this.parent = new int[n_nodes];
+        this.size = new int[n_nodes];
+        for (int u = 0; u < n_nodes; ++u) {
+            this.parent[u] = u;
+            this.size[u] = 1;
+        }
+        this.n_sets = n_nodes;
+    }
+
+    // O(alpha(N)) amortised to get the representative of u's set
+    public int
+    find (int u)
+    {
+        while (this.parent[u] != u) {
+            this.parent[u] = this.parent[this.parent[u]]; // path halving
+            u = this.parent[u];
+        }
+        return u;
+    }
+
+    // O(depth) to get the representative of u's set, without compressing
+    public int
+    find_root (int u)
+    {
+        while (this.parent[u] != u) {
+            u = this.parent[u];
+        }
+        return u;
+    }
+
+    // O(alpha(N)) amortised to merge two sets, false if already the same
+    public boolean
+    union (int u, int w)
+    {
+        u = this.find(u);
+        w = this.find(w);
+        if (u == w) return false;
+        if (this.size[u] < this.size[w]) {
+            int t = u;
+            u = w;
+            w = t;
+        }
+        this.parent[w] = u;
+        this.size[u] += this.size[w];
+        --this.n_sets;
+        return true;
+    }
+
+    // O(alpha(N)) amortised to know if two nodes are in the same set
+    public boolean
+    connected (int u, int w)
+    {
+        return this.find(u) == this.find(w);
+    }
+
+    // O(1) to get the size of u's set, u being a representative
+    public int
+    size (int u)
+    {
+        return this.size[u];
+    }
+
+    // O(1) to get the number of disjoint sets
+    public int
+    n_sets ()
+    {
+        return this.n_sets;
+    }
+}